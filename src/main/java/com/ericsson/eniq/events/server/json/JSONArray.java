@@ -1,5 +1,6 @@
 package com.ericsson.eniq.events.server.json;
 
+import java.io.IOException;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.List;
@@ -59,6 +60,12 @@ public class JSONArray {
      */
     private transient final List<Object> BACKING_LIST = new ArrayList<Object>();
 
+    /**
+     * The text of this JSONArray, if it is cached, or the record of the
+     * cached texts that include it.
+     */
+    private transient volatile JSONTextCache textCache;
+
     /**
      * Default ctor.
      */
@@ -76,6 +83,21 @@ public class JSONArray {
         this(new JSONTokenizer(source));
     }
 
+    /**
+     * Construct a JSONArray from a region of a char array holding a JSON
+     * text. The characters are tokenized in place, without first being
+     * copied into a String.
+     * @param source     A char array holding text that begins with
+     * <code>[</code>&nbsp;<small>(left bracket)</small>
+     *  and ends with <code>]</code>&nbsp;<small>(right bracket)</small>.
+     * @param offset     index of the first character of the text.
+     * @param length     number of characters in the text.
+     *  @throws JSONException If there is a syntax error.
+     */
+    public JSONArray(final char[] source, final int offset, final int length) throws JSONException {
+        this(new JSONTokenizer(source, offset, length));
+    }
+
     /**
      * Construct a JSONArray from a JSONTokenizer.
      * @param tokenizer A JSONTokenizer
@@ -83,28 +105,48 @@ public class JSONArray {
      */
     protected JSONArray(final JSONTokenizer tokenizer) throws JSONException {
         this();
-        char c = tokenizer.nextClean();
+        final char c = tokenizer.nextClean();
         char q;
         if (c == '[') {
             q = ']';
-        } else if (c == '(') {
+        } else if ((c == '(') && !tokenizer.isStrict()) {
             q = ')';
         } else {
             throw tokenizer.syntaxError("A JSONArray text must start with '['");
         }
+        tokenizer.enterContainer();
+        if (tokenizer.isStrict()) {
+            readStrictElements(tokenizer);
+        } else {
+            readElements(tokenizer, q);
+        }
+        tokenizer.leaveContainer();
+    }
+
+    /**
+     * Read the elements of an array whose opening bracket or parenthesis has been consumed.
+     * @param tokenizer a tokenizer
+     * @param q the character expected to close the array
+     * @throws JSONException If there is a syntax error.
+     */
+    private void readElements(final JSONTokenizer tokenizer, final char q) throws JSONException {
         if (tokenizer.nextClean() == ']') {
             return;
         }
         tokenizer.back();
+        int elements = 0;
         for (;;) {
+            tokenizer.checkElementCount(++elements);
             if (tokenizer.nextClean() == ',') {
                 tokenizer.back();
-                this.BACKING_LIST.add(null);
+                if (!tokenizer.isProjecting()) {
+                    this.BACKING_LIST.add(null);
+                }
             } else {
                 tokenizer.back();
-                this.BACKING_LIST.add(tokenizer.nextValue());
+                addElement(tokenizer.nextElementValue());
             }
-            c = tokenizer.nextClean();
+            final char c = tokenizer.nextClean();
             switch (c) {
             case ';':
             case ',':
@@ -125,6 +167,42 @@ public class JSONArray {
         }
     }
 
+    /**
+     * Read the elements of an array in a strict text, whose opening bracket has been consumed. Elements are separated by ',' alone, with none
+     * elided and none after the last.
+     * @param tokenizer a strict tokenizer
+     * @throws JSONException If there is a syntax error.
+     */
+    private void readStrictElements(final JSONTokenizer tokenizer) throws JSONException {
+        if (tokenizer.nextClean() == ']') {
+            return;
+        }
+        tokenizer.back();
+        int elements = 0;
+        for (;;) {
+            tokenizer.checkElementCount(++elements);
+            addElement(tokenizer.nextElementValue());
+            switch (tokenizer.nextClean()) {
+            case ',':
+                break;
+            case ']':
+                return;
+            default:
+                throw tokenizer.syntaxError("Expected a ',' or ']'");
+            }
+        }
+    }
+
+    /**
+     * Add an element read from a text, unless it was left out by a projection.
+     * @param value the element, or null if it was skipped
+     */
+    private void addElement(final Object value) {
+        if (value != null) {
+            this.BACKING_LIST.add(value);
+        }
+    }
+
     /**
      * Construct a JSONArray from an array
      * @param array object to be wrapped
@@ -200,16 +278,52 @@ public class JSONArray {
      * @throws JSONException If the array contains an invalid number.
      */
     public String join(final String separator) throws JSONException {
-        final int len = length();
-        final StringBuilder sb = new StringBuilder();
+        final JSONCharOutput out = new JSONCharOutput();
+        try {
+            join(separator, out);
+            return out.toString();
+        } catch (final IOException e) {
+            // cannot happen, the text is made in memory
+            return null;
+        } finally {
+            out.release();
+        }
+    }
 
+    /**
+     * Write the contents of this JSONArray, with the separator between the elements.
+     * @param separator A string that will be inserted between the elements.
+     * @param out the destination
+     * @throws JSONException If the array contains an invalid number.
+     * @throws IOException If the destination cannot be written to.
+     */
+    private void join(final String separator, final Appendable out) throws JSONException, IOException {
+        join(separator, out, null);
+    }
+
+    /**
+     * Write the contents of this JSONArray, with the separator between the elements.
+     * @param separator A string that will be inserted between the elements.
+     * @param out the destination
+     * @param owner the cache whose text is being made, or null
+     * @throws JSONException If the array contains an invalid number.
+     * @throws IOException If the destination cannot be written to.
+     */
+    private void join(final String separator, final Appendable out, final JSONTextCache owner) throws JSONException, IOException {
+        final int len = length();
         for (int i = 0; i < len; i += 1) {
             if (i > 0) {
-                sb.append(separator);
+                out.append(separator);
             }
-            sb.append(JSONObject.valueToString(this.BACKING_LIST.get(i)));
+            JSONObject.writeValue(JSONLazyValue.resolve(this.BACKING_LIST.get(i)), out, owner);
         }
-        return sb.toString();
+    }
+
+    /**
+     * @return the list holding the elements, for parsers that fill it in place
+     */
+    List<Object> getBackingList() {
+        return this.BACKING_LIST;
     }
 
     /**
@@ -228,7 +342,10 @@ public class JSONArray {
      *              object at that index.
      */
     public Object opt(final int index) {
-        return (index < 0 || index >= length()) ? null : this.BACKING_LIST.get(index);
+        if (index < 0 || index >= length()) {
+            return null;
+        }
+        return JSONLazyValue.resolve(this.BACKING_LIST.get(index));
     }
 
     /**
@@ -240,6 +357,7 @@ public class JSONArray {
      */
     public final JSONArray put(final Object value) {
         this.BACKING_LIST.add(value);
+        changed();
         return this;
     }
 
@@ -252,9 +370,48 @@ public class JSONArray {
     public Object remove(final int index) {
         final Object object = opt(index);
         this.BACKING_LIST.remove(index);
+        changed();
         return object;
     }
 
+    /**
+     * Keep the JSON text of this JSONArray once it has been made, and write
+     * it from then on as one copy of that text, until this JSONArray or any
+     * JSONObject or JSONArray in its tree is changed with put or remove.
+     * @param cached true to cache the text, false to drop it and stop
+     *  caching it
+     * @return this.
+     * @see JSONObject#setTextCached(boolean)
+     */
+    public JSONArray setTextCached(final boolean cached) {
+        if (cached) {
+            textCache().setEnabled(true);
+        } else if (this.textCache != null) {
+            this.textCache.setEnabled(false);
+        }
+        return this;
+    }
+
+    /**
+     * @return the cache of this JSONArray, made if it has none
+     */
+    private synchronized JSONTextCache textCache() {
+        if (this.textCache == null) {
+            this.textCache = new JSONTextCache();
+        }
+        return this.textCache;
+    }
+
+    /**
+     * Drop the cached texts that include this JSONArray, after a change.
+     */
+    private void changed() {
+        final JSONTextCache cache = this.textCache;
+        if (cache != null) {
+            cache.invalidate();
+        }
+    }
+
     /**
      * Extracted in order to inject more formatting when printing json results in tests
      * See subclass for more details
@@ -280,10 +437,123 @@ public class JSONArray {
     public String toString() {
         String result;
         try {
-            result = '[' + join(",") + ']';
+            final JSONTextCache cache = this.textCache;
+            if ((cache != null) && cache.isEnabled()) {
+                return cachedText(cache);
+            }
+            final JSONCharOutput out = new JSONCharOutput();
+            try {
+                write(out);
+                result = out.toString();
+            } finally {
+                out.release();
+            }
         } catch (final Exception e) {
             result = "[]";
         }
         return result;
     }
+
+    /**
+     * Write the JSON text of this JSONArray, as {@link #toString()} would
+     * make it, to a StringBuilder, a Writer or any other Appendable. The
+     * whole tree is written straight into the one destination, rather than
+     * each nested value being made into a String of its own. A nested value
+     * that contains an invalid number, which toString() would write as null
+     * or [], is reported instead, because the text written for it may
+     * already have been passed on.
+     * <p>
+     * Warning: This method assumes that the data structure is acyclical.
+     *
+     * @param out the destination
+     * @return the destination
+     * @throws JSONException If the array contains an invalid number, or if
+     *  the destination cannot be written to.
+     */
+    public Appendable writeTo(final Appendable out) throws JSONException {
+        try {
+            write(out);
+        } catch (final IOException exception) {
+            throw new JSONException(exception);
+        }
+        return out;
+    }
+
+    /**
+     * Write the JSON text of this JSONArray.
+     * @param out the destination
+     * @throws JSONException If the array contains an invalid number.
+     * @throws IOException If the destination cannot be written to.
+     */
+    void write(final Appendable out) throws JSONException, IOException {
+        write(out, null);
+    }
+
+    /**
+     * Write the JSON text of this JSONArray, from its cached text if it has
+     * one.
+     * @param out the destination
+     * @param owner the cache whose text is being made, or null
+     * @throws JSONException If the array contains an invalid number.
+     * @throws IOException If the destination cannot be written to.
+     */
+    void write(final Appendable out, final JSONTextCache owner) throws JSONException, IOException {
+        addParent(owner);
+        final JSONTextCache cache = this.textCache;
+        if ((cache != null) && cache.isEnabled()) {
+            cache.write(cachedText(cache), out);
+        } else {
+            writeElements(out, owner);
+        }
+    }
+
+    /**
+     * Record a cache whose text is being made from the text of this
+     * JSONArray.
+     * @param owner the cache, or null
+     */
+    void addParent(final JSONTextCache owner) {
+        if (owner != null) {
+            textCache().addParent(owner);
+        }
+    }
+
+    /**
+     * @param cache the cache of this JSONArray
+     * @return the text kept in the cache, made if it has none
+     * @throws JSONException If the array contains an invalid number.
+     * @throws IOException Not thrown, the text is made in memory.
+     */
+    private String cachedText(final JSONTextCache cache) throws JSONException, IOException {
+        String text = cache.getText();
+        if (text == null) {
+            final int version = cache.getVersion();
+            final JSONCharOutput out = new JSONCharOutput();
+            try {
+                writeElements(out, cache);
+                text = out.toString();
+            } finally {
+                out.release();
+            }
+            cache.setText(text, version);
+        }
+        return text;
+    }
+
+    /**
+     * @param out the destination
+     * @param owner the cache whose text is being made, or null
+     * @throws JSONException If the array contains an invalid number.
+     * @throws IOException If the destination cannot be written to.
+     */
+    private void writeElements(final Appendable out, final JSONTextCache owner) throws JSONException, IOException {
+        out.append('[');
+        if (getClass() == JSONArray.class) {
+            join(",", out, owner);
+        } else {
+            // a subclass may override join(String)
+            out.append(join(","));
+        }
+        out.append(']');
+    }
 }
\ No newline at end of file
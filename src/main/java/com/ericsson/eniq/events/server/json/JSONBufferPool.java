@@ -0,0 +1,98 @@
+package com.ericsson.eniq.events.server.json;
+
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Package scope internal class
+ * 
+ * A bounded pool of the char and byte arrays that text is written into, so that writing a JSON text reuses the arrays of the texts written
+ * before it, rather than growing a new buffer from a small capacity each time. Each thread keeps one small array of each kind in a slot of its
+ * own, which it takes and gives back without any locking. Larger arrays, and arrays given back while the slot is full, such as those of a text
+ * written while another is being written on the same thread, go to a small queue shared by all threads.
+ * <p/>
+ * A slot lives as long as its thread, so it only keeps arrays up to the slot size, and a container with hundreds of request threads holds a few
+ * tens of KB for each of them. Arrays larger than the largest retained size are not kept at all, so one exceptionally large text does not hold on
+ * to its memory. An array taken from the pool must be given back at most once, and not used after that.
+ */
+final class JSONBufferPool {
+
+    /**
+     * Pool shared by all writers.
+     */
+    static final JSONBufferPool SHARED = new JSONBufferPool(16, 1 << 14, 1 << 18);
+
+    private final ThreadLocal<char[]> charSlot = new ThreadLocal<char[]>();
+
+    private final ThreadLocal<byte[]> byteSlot = new ThreadLocal<byte[]>();
+
+    private final Queue<char[]> sharedChars;
+
+    private final Queue<byte[]> sharedBytes;
+
+    private final int maxSlotLength;
+
+    private final int maxRetainedLength;
+
+    /**
+     * @param sharedCapacity number of arrays of each kind kept in the shared queues
+     * @param maxSlotLength length of the largest array kept in a thread's slot
+     * @param maxRetainedLength length of the largest array kept in the shared queues
+     */
+    JSONBufferPool(final int sharedCapacity, final int maxSlotLength, final int maxRetainedLength) {
+        this.sharedChars = new ArrayBlockingQueue<char[]>(sharedCapacity);
+        this.sharedBytes = new ArrayBlockingQueue<byte[]>(sharedCapacity);
+        this.maxSlotLength = maxSlotLength;
+        this.maxRetainedLength = maxRetainedLength;
+    }
+
+    /**
+     * @param length the smallest length needed
+     * @return a char array of at least the length, from the pool if it has one
+     */
+    char[] takeChars(final int length) {
+        char[] chars = this.charSlot.get();
+        if (chars != null) {
+            this.charSlot.set(null);
+        } else {
+            chars = this.sharedChars.poll();
+        }
+        return (chars != null) && (chars.length >= length) ? chars : new char[length];
+    }
+
+    /**
+     * @param chars an array taken from the pool, or made to be given to it
+     */
+    void giveChars(final char[] chars) {
+        if ((chars.length <= this.maxSlotLength) && (this.charSlot.get() == null)) {
+            this.charSlot.set(chars);
+        } else if (chars.length <= this.maxRetainedLength) {
+            this.sharedChars.offer(chars);
+        }
+    }
+
+    /**
+     * @param length the smallest length needed
+     * @return a byte array of at least the length, from the pool if it has one
+     */
+    byte[] takeBytes(final int length) {
+        byte[] bytes = this.byteSlot.get();
+        if (bytes != null) {
+            this.byteSlot.set(null);
+        } else {
+            bytes = this.sharedBytes.poll();
+        }
+        return (bytes != null) && (bytes.length >= length) ? bytes : new byte[length];
+    }
+
+    /**
+     * @param bytes an array taken from the pool, or made to be given to it
+     */
+    void giveBytes(final byte[] bytes) {
+        if ((bytes.length <= this.maxSlotLength) && (this.byteSlot.get() == null)) {
+            this.byteSlot.set(bytes);
+        } else if (bytes.length <= this.maxRetainedLength) {
+            this.sharedBytes.offer(bytes);
+        }
+    }
+}
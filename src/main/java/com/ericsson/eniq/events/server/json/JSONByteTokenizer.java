@@ -0,0 +1,792 @@
+package com.ericsson.eniq.events.server.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+/**
+ * Package scope internal class
+ * 
+ * A JSONTokenizer that reads UTF-8 encoded bytes directly, so a payload held in a byte array, a ByteBuffer or an InputStream can be parsed without
+ * first being decoded into a String.
+ * <p/>
+ * ASCII is by far the most common content of our payloads, so strings and unquoted text made up only of ASCII bytes are scanned in bulk and turned
+ * into compact Latin-1 Strings straight from the bytes. The runs inside quoted strings, which make up most of the bytes of a typical payload, are
+ * found eight bytes at a time with long arithmetic. Anything else is decoded one character at a time without going through a CharsetDecoder;
+ * malformed sequences decode to U+FFFD. A leading byte order mark is skipped.
+ * <p/>
+ * Positions in syntax error messages count characters, as they would for the equivalent String. They are worked out by decoding the bytes again
+ * when an error is raised; a stream or a file read in segments has its position so far recorded before each buffer is replaced, so only the bytes
+ * of the current buffer have to be gone over.
+ * 
+ * @see JSONParser
+ */
+class JSONByteTokenizer extends JSONTokenizer {
+
+    private static final char[] NO_CHARS = new char[0];
+
+    private static final Charset LATIN_1 = Charset.forName("ISO-8859-1");
+
+    private static final char REPLACEMENT_CHAR = '\uFFFD';
+
+    /**
+     * A long with each of its eight bytes set to 1, for testing eight bytes at a time.
+     */
+    private static final long ONES = 0x0101010101010101L;
+
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private static final long BACKSLASHES = ONES * '\\';
+
+    private static final long SPACES = ONES * ' ';
+
+    private final InputStream stream;
+
+    private ByteBuffer buffer;
+
+    private int pos;
+
+    private int limit;
+
+    /**
+     * Low surrogate still to be returned after the high surrogate of a supplementary character, or 0.
+     */
+    private char pendingLowSurrogate;
+
+    /**
+     * Copy area used to build Strings from buffers that are not backed by an accessible array.
+     */
+    private byte[] scratch;
+
+    /**
+     * Position reached at the start of the bytes still to be gone over for a syntax error: those of {@link #carry} followed by those of the buffer
+     * from {@link #replayStart}.
+     */
+    private final JSONPosition checkpoint = new JSONPosition();
+
+    private int replayStart;
+
+    /**
+     * Start of a multi-byte character that straddles the end of the previous buffer.
+     */
+    private final byte[] carry = new byte[3];
+
+    private int carryLength;
+
+    /**
+     * Number of bytes of input taken into the buffer so far, or all of them for a buffer given at construction.
+     */
+    private long bytesRead;
+
+    private long maxInputLength = Long.MAX_VALUE;
+
+    /**
+     * Construct a tokenizer over the remaining bytes of a buffer. The buffer's position and limit are not modified.
+     * 
+     * @param source UTF-8 encoded JSON text
+     */
+    JSONByteTokenizer(final ByteBuffer source) {
+        super(NO_CHARS, 0, 0);
+        this.stream = null;
+        this.buffer = littleEndian(source);
+        this.pos = source.position();
+        this.limit = source.limit();
+        this.replayStart = this.pos;
+        this.bytesRead = this.limit - this.pos;
+        skipByteOrderMark();
+    }
+
+    /**
+     * Construct a tokenizer reading from a stream through a fixed size buffer, so memory use does not depend on the size of the payload. The stream
+     * is not closed.
+     * 
+     * @param source UTF-8 encoded JSON text
+     * @param bufferSize number of bytes read from the stream at a time
+     * @throws JSONException if the stream cannot be read
+     */
+    JSONByteTokenizer(final InputStream source, final int bufferSize) throws JSONException {
+        super(NO_CHARS, 0, 0);
+        this.stream = source;
+        this.buffer = littleEndian(ByteBuffer.wrap(new byte[bufferSize]));
+        this.pos = 0;
+        this.limit = 0;
+        if (fill()) {
+            skipByteOrderMark();
+        }
+    }
+
+    /**
+     * Make the next bytes of the input available once the current ones have all been consumed.
+     * 
+     * @return false if there are no more bytes
+     * @throws JSONException if the input cannot be read
+     */
+    boolean fill() throws JSONException {
+        if (this.stream == null) {
+            return false;
+        }
+        final byte[] bytes = this.buffer.array();
+        checkpoint();
+        try {
+            int count;
+            do {
+                count = this.stream.read(bytes, 0, bytes.length);
+            } while (count == 0);
+            if (count < 0) {
+                return false;
+            }
+            this.pos = 0;
+            this.limit = count;
+            this.replayStart = 0;
+            this.bytesRead += count;
+            checkInputLength();
+            return true;
+        } catch (final IOException exception) {
+            throw new JSONException(exception);
+        }
+    }
+
+    @Override
+    void setMaxInputLength(final long maxInputLength) throws JSONException {
+        this.maxInputLength = maxInputLength;
+        checkInputLength();
+    }
+
+    private void checkInputLength() throws JSONException {
+        if (this.bytesRead > this.maxInputLength) {
+            throw new JSONException("Input longer than " + this.maxInputLength + " bytes");
+        }
+    }
+
+    /**
+     * Replace the bytes being read, for subclasses that move through their input one region at a time.
+     * 
+     * @param source the next region of input
+     */
+    final void setBuffer(final ByteBuffer source) {
+        checkpoint();
+        this.buffer = littleEndian(source);
+        this.pos = source.position();
+        this.limit = source.limit();
+        this.replayStart = this.pos;
+    }
+
+    /**
+     * @param source a buffer
+     * @return a view of the buffer that reads longs with the first byte lowest, as {@link #stringRunEnd(int, int, char)} requires
+     */
+    private static ByteBuffer littleEndian(final ByteBuffer source) {
+        return source.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    final void skipByteOrderMark() {
+        if ((this.limit - this.pos >= 3) && (this.buffer.get(this.pos) == (byte) 0xEF) && (this.buffer.get(this.pos + 1) == (byte) 0xBB)
+                && (this.buffer.get(this.pos + 2) == (byte) 0xBF)) {
+            this.pos += 3;
+            this.replayStart = this.pos;
+        }
+    }
+
+    /**
+     * Go over the bytes of the current buffer, which have all been consumed, before it is replaced. A multi-byte character that the buffer ends in
+     * the middle of is kept, to be gone over with the bytes that follow it.
+     */
+    private void checkpoint() {
+        final int end = this.carryLength + this.limit - this.replayStart;
+        int i = 0;
+        while (i < end) {
+            final int length = sequenceLength(i, end);
+            if (length == 0) {
+                break;
+            }
+            goOver(this.checkpoint, i, length, Long.MAX_VALUE);
+            i += length;
+        }
+        final int rest = end - i;
+        for (int j = 0; j < rest; j++) {
+            this.carry[j] = (byte) replayByte(i + j);
+        }
+        this.carryLength = rest;
+        this.replayStart = this.limit;
+    }
+
+    @Override
+    JSONPosition positionAfter(final long count) {
+        final JSONPosition position = this.checkpoint.copy();
+        final int end = this.carryLength + this.limit - this.replayStart;
+        int i = 0;
+        while ((i < end) && (position.getCount() < count)) {
+            int length = sequenceLength(i, end);
+            if (length == 0) { // the input ends in the middle of a character, which was decoded to U+FFFD
+                length = end - i;
+            }
+            goOver(position, i, length, count);
+            i += length;
+        }
+        while (position.getCount() < count) {
+            position.advance((char) 0);
+        }
+        return position;
+    }
+
+    /**
+     * @param i index among the bytes still to be gone over: those carried over from the previous buffer, then those of the current one
+     * @return the byte as an unsigned value
+     */
+    private int replayByte(final int i) {
+        if (i < this.carryLength) {
+            return this.carry[i] & 0xFF;
+        }
+        return this.buffer.get(this.replayStart + i - this.carryLength) & 0xFF;
+    }
+
+    /**
+     * Find how many bytes were consumed for a character, in the same way as {@link #decode(int)}.
+     * 
+     * @param i index of the first byte of the character among the bytes still to be gone over
+     * @param end number of bytes still to be gone over
+     * @return the number of bytes, or 0 if the bytes end in the middle of the character
+     */
+    private int sequenceLength(final int i, final int end) {
+        final int lead = replayByte(i);
+        final int continuations;
+        if ((lead >= 0xC2) && (lead < 0xE0)) {
+            continuations = 1;
+        } else if ((lead >= 0xE0) && (lead < 0xF0)) {
+            continuations = 2;
+        } else if ((lead >= 0xF0) && (lead < 0xF5)) {
+            continuations = 3;
+        } else {
+            continuations = 0;
+        }
+        int length = 1;
+        while (length <= continuations) {
+            if (i + length >= end) {
+                return 0;
+            }
+            if ((replayByte(i + length) & 0xC0) != 0x80) {
+                break;
+            }
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Go over the one or two characters decoded from a sequence of bytes. Only line breaks matter to a position, so every non-ASCII character is
+     * gone over as U+FFFD.
+     * 
+     * @param position the position to move on
+     * @param i index of the first byte among the bytes still to be gone over
+     * @param length number of bytes in the sequence
+     * @param count number of characters not to go beyond
+     */
+    private void goOver(final JSONPosition position, final int i, final int length, final long count) {
+        final int lead = replayByte(i);
+        if (lead < 0x80) {
+            position.advance((char) lead);
+            return;
+        }
+        position.advance(REPLACEMENT_CHAR);
+        if ((length == 4) && (position.getCount() < count)) {
+            final int codePoint = ((lead & 0x07) << 18) | ((replayByte(i + 1) & 0x3F) << 12) | ((replayByte(i + 2) & 0x3F) << 6)
+                    | (replayByte(i + 3) & 0x3F);
+            if ((codePoint >= 0x10000) && (codePoint <= Character.MAX_CODE_POINT)) {
+                position.advance(REPLACEMENT_CHAR);
+            }
+        }
+    }
+
+    /**
+     * @return the next byte as an unsigned value, or -1 at the end of the input
+     * @throws JSONException if the input cannot be read
+     */
+    private int nextByte() throws JSONException {
+        if ((this.pos >= this.limit) && !fill()) {
+            return -1;
+        }
+        return this.buffer.get(this.pos++) & 0xFF;
+    }
+
+    /**
+     * Consume the next byte if it is a UTF-8 continuation byte.
+     * 
+     * @return the six payload bits of the byte, or -1 if the next byte is not a continuation byte
+     * @throws JSONException if the input cannot be read
+     */
+    private int nextContinuation() throws JSONException {
+        if ((this.pos >= this.limit) && !fill()) {
+            return -1;
+        }
+        final int b = this.buffer.get(this.pos);
+        if ((b & 0xC0) != 0x80) {
+            return -1;
+        }
+        this.pos++;
+        return b & 0x3F;
+    }
+
+    /**
+     * Decode the character starting with a non-ASCII lead byte.
+     * 
+     * @param lead the first byte of the sequence, already consumed
+     * @return the decoded character, the high surrogate of a supplementary character, or U+FFFD
+     * @throws JSONException if the input cannot be read
+     */
+    private char decode(final int lead) throws JSONException {
+        if ((lead >= 0xC2) && (lead < 0xE0)) {
+            final int b1 = nextContinuation();
+            return b1 < 0 ? REPLACEMENT_CHAR : (char) (((lead & 0x1F) << 6) | b1);
+        }
+        if ((lead >= 0xE0) && (lead < 0xF0)) {
+            final int b1 = nextContinuation();
+            final int b2 = b1 < 0 ? -1 : nextContinuation();
+            if (b2 < 0) {
+                return REPLACEMENT_CHAR;
+            }
+            final char c = (char) (((lead & 0x0F) << 12) | (b1 << 6) | b2);
+            return (c < 0x800) || Character.isSurrogate(c) ? REPLACEMENT_CHAR : c;
+        }
+        if ((lead >= 0xF0) && (lead < 0xF5)) {
+            final int b1 = nextContinuation();
+            final int b2 = b1 < 0 ? -1 : nextContinuation();
+            final int b3 = b2 < 0 ? -1 : nextContinuation();
+            if (b3 < 0) {
+                return REPLACEMENT_CHAR;
+            }
+            final int codePoint = ((lead & 0x07) << 18) | (b1 << 12) | (b2 << 6) | b3;
+            if ((codePoint < 0x10000) || (codePoint > Character.MAX_CODE_POINT)) {
+                return REPLACEMENT_CHAR;
+            }
+            this.pendingLowSurrogate = Character.lowSurrogate(codePoint);
+            return Character.highSurrogate(codePoint);
+        }
+        return REPLACEMENT_CHAR;
+    }
+
+    /**
+     * @return true if the next character can be taken directly from the bytes, rather than from the pushed back or pending character
+     */
+    private boolean atByteBoundary() {
+        return !isBackedUp() && (this.pendingLowSurrogate == 0);
+    }
+
+    @Override
+    public char next() throws JSONException {
+        if (isBackedUp()) {
+            return super.next();
+        }
+        char c;
+        if (this.pendingLowSurrogate != 0) {
+            c = this.pendingLowSurrogate;
+            this.pendingLowSurrogate = 0;
+        } else {
+            final int b = nextByte();
+            if (b < 0) { // End of stream
+                markEnd();
+                c = 0;
+            } else if (b == 0) { // Embedded NUL, which is treated the same way
+                markNul();
+                c = 0;
+            } else if (b < 0x80) {
+                c = (char) b;
+            } else {
+                c = decode(b);
+            }
+        }
+        advance(c);
+        return c;
+    }
+
+    @Override
+    public char nextClean() throws JSONException {
+        for (;;) {
+            if (!atByteBoundary() || ((this.pos >= this.limit) && !fill())) {
+                final char c = next();
+                if ((c == 0) || (c > ' ') || !isWhitespace(c)) {
+                    return c;
+                }
+                continue;
+            }
+            final int b = this.buffer.get(this.pos);
+            if ((b < 0) || (b > ' ')) {
+                return next();
+            }
+            this.pos++;
+            final char c = (char) b;
+            advance(c);
+            if (c == 0) {
+                markNul();
+                return c;
+            }
+            if (!isWhitespace(c)) {
+                return c;
+            }
+        }
+    }
+
+    @Override
+    String nextString(final char quote) throws JSONException {
+        StringBuilder sb = null;
+        for (;;) {
+            if (atByteBoundary()) {
+                final int start = this.pos;
+                final int end = this.limit;
+                final int i = stringRunEnd(start, end, quote);
+                final int run = i - start;
+                if (run > 0) {
+                    if (run > getMaxStringLength() - (sb == null ? 0 : sb.length())) {
+                        throw stringLengthError(start, sb == null ? 0 : sb.length());
+                    }
+                    advanceRun(run, (char) this.buffer.get(i - 1));
+                    this.pos = i;
+                }
+                if ((sb == null) && (i < end) && (this.buffer.get(i) == quote)) {
+                    this.pos++;
+                    advance(quote);
+                    return latin1String(start, run);
+                }
+                if (run > 0) {
+                    if (sb == null) {
+                        sb = new StringBuilder(run + 16);
+                    }
+                    appendLatin1(sb, start, run);
+                }
+            }
+            final char c = next();
+            if (c == quote) {
+                return sb == null ? "" : sb.toString();
+            }
+            if (sb == null) {
+                sb = new StringBuilder();
+            }
+            switch (c) {
+                case 0:
+                case '\n':
+                case '\r':
+                    throw syntaxError("Unterminated string");
+                case '\\':
+                    appendEscape(sb);
+                    break;
+                default:
+                    checkStringCharacter(c);
+                    sb.append(c);
+            }
+            if (sb.length() > getMaxStringLength()) {
+                throw stringLengthError();
+            }
+        }
+    }
+
+    /**
+     * Consume the bytes of a run in a string up to the first one beyond the maximum length of a string, and make the error for it.
+     * 
+     * @param start buffer index of the run
+     * @param length number of characters of the string before the run
+     * @return A JSONException object, suitable for throwing
+     */
+    private JSONException stringLengthError(final int start, final int length) {
+        final int count = getMaxStringLength() - length + 1;
+        advanceRun(count, (char) this.buffer.get(start + count - 1));
+        this.pos = start + count;
+        return stringLengthError();
+    }
+
+    @Override
+    String nextKey(final char quote) throws JSONException {
+        if (atByteBoundary()) {
+            final int start = this.pos;
+            final int end = this.limit;
+            int hash = 0;
+            int i = start;
+            while (i < end) {
+                final int b = this.buffer.get(i);
+                if (isStringRunEnd(b, quote)) {
+                    break;
+                }
+                hash = 31 * hash + b;
+                i++;
+            }
+            final int count = i - start;
+            if ((i < end) && (this.buffer.get(i) == quote) && (count <= JSONSymbolTable.MAX_SYMBOL_LENGTH) && (count <= getMaxStringLength())) {
+                final JSONSymbolTable symbols = getSymbolTable();
+                String key = symbols.get(this.buffer, start, count, hash);
+                if (key == null) {
+                    key = latin1String(start, count);
+                    symbols.put(key);
+                }
+                if (count > 0) {
+                    advanceRun(count, (char) this.buffer.get(i - 1));
+                }
+                this.pos = i + 1;
+                advance(quote);
+                return key;
+            }
+        }
+        return nextString(quote);
+    }
+
+    @Override
+    void nextKey(final char quote, final JSONKeySet keys) throws JSONException {
+        int length = 0;
+        for (;;) {
+            if (atByteBoundary()) {
+                final int start = this.pos;
+                final int i = stringRunEnd(start, this.limit, quote);
+                if (i > start) {
+                    if (i - start > getMaxStringLength() - length) {
+                        throw stringLengthError(start, length);
+                    }
+                    keys.append(this.buffer, start, i - start);
+                    advanceRun(i - start, (char) this.buffer.get(i - 1));
+                    this.pos = i;
+                    length += i - start;
+                }
+            }
+            final char c = next();
+            if (c == quote) {
+                return;
+            }
+            switch (c) {
+                case 0:
+                case '\n':
+                case '\r':
+                    throw syntaxError("Unterminated string");
+                case '\\':
+                    appendEscape(keys);
+                    break;
+                default:
+                    checkStringCharacter(c);
+                    keys.append(c);
+                    break;
+            }
+            if (++length > getMaxStringLength()) {
+                throw stringLengthError();
+            }
+        }
+    }
+
+    @Override
+    void skipString(final char quote) throws JSONException {
+        int length = 0;
+        for (;;) {
+            if (atByteBoundary()) {
+                final int start = this.pos;
+                final int i = stringRunEnd(start, this.limit, quote);
+                if (i > start) {
+                    if (i - start > getMaxStringLength() - length) {
+                        throw stringLengthError(start, length);
+                    }
+                    advanceRun(i - start, (char) this.buffer.get(i - 1));
+                    this.pos = i;
+                    length += i - start;
+                }
+            }
+            final char c = next();
+            if (c == quote) {
+                return;
+            }
+            switch (c) {
+                case 0:
+                case '\n':
+                case '\r':
+                    throw syntaxError("Unterminated string");
+                case '\\':
+                    skipEscape();
+                    break;
+                default:
+                    checkStringCharacter(c);
+                    break;
+            }
+            if (++length > getMaxStringLength()) {
+                throw stringLengthError();
+            }
+        }
+    }
+
+    /**
+     * @return true if the whole input is held in the current buffer, so that it can be read again from any position
+     */
+    boolean isRandomAccess() {
+        return this.stream == null;
+    }
+
+    /**
+     * Create a new tokenizer over the same bytes, starting at the character this tokenizer is backed up onto. That is always a single byte ASCII
+     * character, as only structural characters are stepped back over.
+     * 
+     * @return the new tokenizer, or null if the input is read from a stream, or from a file in several segments
+     */
+    @Override
+    JSONTokenizer fork() {
+        if (!isRandomAccess()) {
+            return null;
+        }
+        final ByteBuffer source = this.buffer.duplicate();
+        source.position(this.pos - 1);
+        return new JSONByteTokenizer(source);
+    }
+
+    @Override
+    String nextUnquotedText(final char c) throws JSONException {
+        if (!isUnquotedTextChar(c)) {
+            back();
+            return "";
+        }
+        if (atByteBoundary() && (this.pos > 0) && (this.buffer.get(this.pos - 1) == c)) {
+            // the common case: the whole text is ASCII and ends inside the current buffer, so it can be taken straight from the bytes
+            final int start = this.pos - 1;
+            final int end = this.limit;
+            int i = this.pos;
+            while ((i < end) && isUnquotedTextByte(this.buffer.get(i))) {
+                i++;
+            }
+            if ((i < end) && (this.buffer.get(i) >= 0)) {
+                final int run = i - this.pos;
+                if (run > 0) {
+                    advanceRun(run, (char) this.buffer.get(i - 1));
+                    this.pos = i;
+                }
+                next();
+                back();
+                return latin1String(start, i - start);
+            }
+        }
+        final StringBuilder sb = new StringBuilder(16);
+        sb.append(c);
+        for (;;) {
+            if (atByteBoundary() && ((this.pos < this.limit) || fill())) {
+                final int start = this.pos;
+                final int end = this.limit;
+                int i = start;
+                while ((i < end) && isUnquotedTextByte(this.buffer.get(i))) {
+                    i++;
+                }
+                final int run = i - start;
+                if (run > 0) {
+                    advanceRun(run, (char) this.buffer.get(i - 1));
+                    this.pos = i;
+                    appendLatin1(sb, start, run);
+                    if (i == end) {
+                        continue;
+                    }
+                }
+            }
+            final char next = next();
+            if (!isUnquotedTextChar(next)) {
+                back();
+                return sb.toString();
+            }
+            sb.append(next);
+        }
+    }
+
+    @Override
+    void skipUnquotedText(final char c) throws JSONException {
+        if (!isUnquotedTextChar(c)) {
+            back();
+            throw syntaxError("Missing value");
+        }
+        long length = 1;
+        for (;;) {
+            if (atByteBoundary() && ((this.pos < this.limit) || fill())) {
+                final int start = this.pos;
+                final int end = this.limit;
+                int i = start;
+                while ((i < end) && isUnquotedTextByte(this.buffer.get(i))) {
+                    i++;
+                }
+                if (i > start) {
+                    advanceRun(i - start, (char) this.buffer.get(i - 1));
+                    this.pos = i;
+                    length += i - start;
+                    if (i == end) {
+                        continue;
+                    }
+                }
+            }
+            if (!isUnquotedTextChar(next())) {
+                back();
+                checkValueLength(length);
+                return;
+            }
+            length++;
+        }
+    }
+
+    /**
+     * Find the end of a run of bytes that can be taken into a quoted string as they are. The bytes are tested eight at a time, as a long: a block
+     * is passed over in one step unless one of its bytes is the quote, a backslash, a control character or part of a multi-byte character, all of
+     * which end the run.
+     * 
+     * @param from buffer index to scan from
+     * @param to buffer index to stop at
+     * @param quote The quoting character, either " or '
+     * @return the index of the first byte that ends the run, or <code>to</code>
+     */
+    private int stringRunEnd(final int from, final int to, final char quote) {
+        final ByteBuffer buf = this.buffer;
+        final long quotes = ONES * quote;
+        int i = from;
+        while (i <= to - 8) {
+            final long block = buf.getLong(i);
+            final long matchQuote = block ^ quotes;
+            final long matchBackslash = block ^ BACKSLASHES;
+
+            // the lowest flagged byte is exact; borrows can only flag bytes above it
+            final long flags = (((matchQuote - ONES) & ~matchQuote) | ((matchBackslash - ONES) & ~matchBackslash) | ((block - SPACES) & ~block) | block)
+                    & HIGH_BITS;
+            if (flags != 0) {
+                return i + (Long.numberOfTrailingZeros(flags) >>> 3);
+            }
+            i += 8;
+        }
+        while ((i < to) && !isStringRunEnd(buf.get(i), quote)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isStringRunEnd(final int b, final char quote) {
+        return (b < ' ') || (b == quote) || (b == '\\');
+    }
+
+    /**
+     * @param b byte to test
+     * @return true if the byte is an ASCII character that can appear in unquoted text
+     */
+    private static boolean isUnquotedTextByte(final int b) {
+        return (b >= 0) && isUnquotedTextChar((char) b);
+    }
+
+    /**
+     * Make a String from a run of ASCII bytes in the current buffer. Such Strings are stored in the compact Latin-1 form.
+     * 
+     * @param start buffer index of the first byte
+     * @param count number of bytes
+     * @return the String
+     */
+    private String latin1String(final int start, final int count) {
+        if (count == 0) {
+            return "";
+        }
+        if (this.buffer.hasArray()) {
+            return new String(this.buffer.array(), this.buffer.arrayOffset() + start, count, LATIN_1);
+        }
+        if ((this.scratch == null) || (this.scratch.length < count)) {
+            this.scratch = new byte[Math.max(count, 64)];
+        }
+        final ByteBuffer source = this.buffer.duplicate();
+        source.limit(start + count).position(start);
+        source.get(this.scratch, 0, count);
+        return new String(this.scratch, 0, count, LATIN_1);
+    }
+
+    private void appendLatin1(final StringBuilder sb, final int start, final int count) {
+        for (int i = start; i < start + count; i++) {
+            sb.append((char) this.buffer.get(i));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.ericsson.eniq.events.server.json;
+
+import java.util.Arrays;
+
+/**
+ * Package scope internal class
+ * 
+ * An Appendable that collects text in a char array taken from the {@link JSONBufferPool}, for making the String of a JSON text. Unlike a
+ * StringBuilder it starts from an array that has already grown to the size of earlier texts, and Strings are copied in with getChars, a whole run
+ * at a time. The array must be given back with {@link #release()} once the String has been made:
+ * 
+ * <pre>
+ * final JSONCharOutput out = new JSONCharOutput();
+ * try {
+ *     write(out);
+ *     return out.toString();
+ * } finally {
+ *     out.release();
+ * }
+ * </pre>
+ */
+final class JSONCharOutput implements Appendable {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private char[] chars;
+
+    /**
+     * Number of chars in use.
+     */
+    private int count;
+
+    JSONCharOutput() {
+        this.chars = JSONBufferPool.SHARED.takeChars(INITIAL_CAPACITY);
+    }
+
+    public Appendable append(final CharSequence csq) {
+        final CharSequence s = csq == null ? "null" : csq;
+        return append(s, 0, s.length());
+    }
+
+    public Appendable append(final CharSequence csq, final int start, final int end) {
+        final CharSequence s = csq == null ? "null" : csq;
+        reserve(end - start);
+        if (s instanceof String) {
+            ((String) s).getChars(start, end, this.chars, this.count);
+            this.count += end - start;
+        } else {
+            for (int i = start; i < end; i++) {
+                this.chars[this.count++] = s.charAt(i);
+            }
+        }
+        return this;
+    }
+
+    public Appendable append(final char c) {
+        reserve(1);
+        this.chars[this.count++] = c;
+        return this;
+    }
+
+    /**
+     * @return the text appended
+     */
+    @Override
+    public String toString() {
+        return new String(this.chars, 0, this.count);
+    }
+
+    /**
+     * @return the number of chars appended
+     */
+    int length() {
+        return this.count;
+    }
+
+    /**
+     * Take back the chars appended after a point.
+     * 
+     * @param length the number of chars to keep, at most {@link #length()}
+     */
+    void setLength(final int length) {
+        this.count = length;
+    }
+
+    /**
+     * Give the array back to the pool. Nothing more can be appended.
+     */
+    void release() {
+        if (this.chars != null) {
+            JSONBufferPool.SHARED.giveChars(this.chars);
+            this.chars = null;
+        }
+    }
+
+    /**
+     * @param length number of chars about to be appended
+     */
+    private void reserve(final int length) {
+        if (this.count + length > this.chars.length) {
+            this.chars = Arrays.copyOf(this.chars, Math.max(this.chars.length * 2, this.count + length));
+        }
+    }
+}
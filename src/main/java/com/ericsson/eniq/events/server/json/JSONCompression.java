@@ -0,0 +1,257 @@
+package com.ericsson.eniq.events.server.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * The compression of the text written by a {@link JSONWriter}, which deflates the text as it is encoded rather than compressing the whole
+ * response afterwards:
+ * 
+ * <pre>
+ * final JSONWriter writer = new JSONWriter(outputStream, JSONCompression.gzip());
+ * ...
+ * writer.finish();
+ * </pre>
+ * 
+ * Text is compressed in the gzip format (RFC 1952), for HTTP clients, or in the zlib format (RFC 1950), which can start from a preset dictionary
+ * that both ends hold. Repeated names and values such as <code>"datatype":</code> and <code>"isHidden":</code> can then be compressed from the
+ * first time they appear in a response. A dictionary can be made from a sample of typical documents with
+ * {@link #createDictionary(Iterable, int)}, and the reader sets it on its Inflater when {@link java.util.zip.Inflater#needsDictionary()}.
+ * <p/>
+ * {@link JSONWriter#flush()}, and each flush point set with {@link JSONWriter#setFlushInterval(int)}, sync flushes the compressed stream, so that
+ * everything written before it can be decompressed by the reader straight away.
+ */
+public final class JSONCompression {
+
+    /**
+     * Largest dictionary that deflate can use, the size of its window.
+     */
+    public static final int MAX_DICTIONARY_SIZE = 32768;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final boolean gzip;
+
+    private final byte[] dictionary;
+
+    private int level = Deflater.DEFAULT_COMPRESSION;
+
+    private JSONCompression(final boolean gzip, final byte[] dictionary) {
+        this.gzip = gzip;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * @return compression in the gzip format
+     */
+    public static JSONCompression gzip() {
+        return new JSONCompression(true, null);
+    }
+
+    /**
+     * @param dictionary the preset dictionary, or null for none. The gzip format has no way to name a dictionary, so one can only be used with this
+     *            format.
+     * @return compression in the zlib format
+     */
+    public static JSONCompression deflate(final byte[] dictionary) {
+        if ((dictionary != null) && (dictionary.length > MAX_DICTIONARY_SIZE)) {
+            throw new IllegalArgumentException("Dictionary longer than " + MAX_DICTIONARY_SIZE + " bytes");
+        }
+        return new JSONCompression(false, dictionary == null ? null : dictionary.clone());
+    }
+
+    /**
+     * Set the compression level, from Deflater.BEST_SPEED to Deflater.BEST_COMPRESSION. The default is Deflater.DEFAULT_COMPRESSION.
+     * 
+     * @param level the level
+     * @return this.
+     */
+    public JSONCompression setLevel(final int level) {
+        if (((level < Deflater.NO_COMPRESSION) || (level > Deflater.BEST_COMPRESSION)) && (level != Deflater.DEFAULT_COMPRESSION)) {
+            throw new IllegalArgumentException("Invalid compression level " + level);
+        }
+        this.level = level;
+        return this;
+    }
+
+    /**
+     * Make a preset dictionary from a sample of documents. The dictionary holds the member names, with their quotes and colon, and the string and
+     * other values that are repeated most across the sample, weighted by their length, with the most valuable at the end where deflate reaches
+     * them at the shortest distance.
+     * 
+     * @param samples the text of typical documents
+     * @param size the largest size of the dictionary in bytes, at most MAX_DICTIONARY_SIZE
+     * @return the dictionary, which may be shorter than the size if the sample repeats too little to fill it
+     * @throws JSONException If a sample is not a valid JSON text.
+     */
+    public static byte[] createDictionary(final Iterable<String> samples, final int size) throws JSONException {
+        if ((size < 0) || (size > MAX_DICTIONARY_SIZE)) {
+            throw new IllegalArgumentException("Invalid dictionary size " + size);
+        }
+        final Map<String, int[]> counts = new HashMap<String, int[]>();
+        final JSONHandler counter = new JSONHandler() {
+
+            public void startObject() {
+                // structure is cheap to compress without a dictionary
+            }
+
+            public void key(final String key) {
+                count(JSONObject.quote(key) + ':');
+            }
+
+            public void endObject() {
+                // structure is cheap to compress without a dictionary
+            }
+
+            public void startArray() {
+                // structure is cheap to compress without a dictionary
+            }
+
+            public void endArray() {
+                // structure is cheap to compress without a dictionary
+            }
+
+            public void value(final Object value) throws JSONException {
+                if (value != null) {
+                    count(JSONObject.valueToString(value));
+                }
+            }
+
+            private void count(final String fragment) {
+                final int[] count = counts.get(fragment);
+                if (count == null) {
+                    counts.put(fragment, new int[] { 1 });
+                } else {
+                    count[0]++;
+                }
+            }
+        };
+        final JSONParser parser = new JSONParser();
+        for (final String sample : samples) {
+            parser.parse(sample, counter);
+        }
+
+        final List<Map.Entry<String, int[]>> fragments = new ArrayList<Map.Entry<String, int[]>>();
+        for (final Map.Entry<String, int[]> entry : counts.entrySet()) {
+            if (entry.getValue()[0] > 1) {
+                fragments.add(entry);
+            }
+        }
+        Collections.sort(fragments, new Comparator<Map.Entry<String, int[]>>() {
+            public int compare(final Map.Entry<String, int[]> a, final Map.Entry<String, int[]> b) {
+                final long scoreA = (long) a.getValue()[0] * a.getKey().length();
+                final long scoreB = (long) b.getValue()[0] * b.getKey().length();
+                return scoreA != scoreB ? (scoreA > scoreB ? -1 : 1) : a.getKey().compareTo(b.getKey());
+            }
+        });
+        final List<byte[]> chosen = new ArrayList<byte[]>();
+        int length = 0;
+        for (final Map.Entry<String, int[]> fragment : fragments) {
+            final byte[] bytes = fragment.getKey().getBytes(UTF_8);
+            if (length + bytes.length <= size) {
+                chosen.add(bytes);
+                length += bytes.length;
+            }
+        }
+        final byte[] dictionary = new byte[length];
+        int position = length;
+        for (final byte[] bytes : chosen) {
+            position -= bytes.length;
+            System.arraycopy(bytes, 0, dictionary, position, bytes.length);
+        }
+        return dictionary;
+    }
+
+    /**
+     * @return a new Deflater for this compression, which the caller must end
+     */
+    Deflater createDeflater() {
+        final Deflater deflater = new Deflater(this.level, this.gzip);
+        if (this.dictionary != null) {
+            deflater.setDictionary(this.dictionary);
+        }
+        return deflater;
+    }
+
+    /**
+     * @param stream the destination of the compressed text
+     * @param deflater a Deflater made by {@link #createDeflater()}
+     * @return a stream that compresses to the destination, and sync flushes when it is flushed
+     */
+    DeflaterOutputStream createStream(final OutputStream stream, final Deflater deflater) {
+        return this.gzip ? new GzipStream(stream, deflater) : new DeflaterOutputStream(stream, deflater, BUFFER_SIZE, true);
+    }
+
+    /**
+     * A gzip stream on a Deflater of the caller's, which GZIPOutputStream does not take, so that the Deflater can be ended without closing the
+     * destination.
+     */
+    private static final class GzipStream extends DeflaterOutputStream {
+
+        /**
+         * Member header: magic number, deflate, no flags, no modification time, no extra flags, unknown operating system.
+         */
+        private static final byte[] HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+        private final CRC32 crc = new CRC32();
+
+        private boolean started;
+
+        GzipStream(final OutputStream stream, final Deflater deflater) {
+            super(stream, deflater, BUFFER_SIZE, true);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            start();
+            super.write(b, off, len);
+            this.crc.update(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            start();
+            super.flush();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            start();
+            if (!this.def.finished()) {
+                super.finish();
+                writeInt((int) this.crc.getValue());
+                writeInt((int) this.def.getBytesRead());
+            }
+        }
+
+        private void start() throws IOException {
+            if (!this.started) {
+                this.started = true;
+                this.out.write(HEADER);
+            }
+        }
+
+        /**
+         * @param value an int to write in little endian order
+         * @throws IOException If the destination cannot be written to.
+         */
+        private void writeInt(final int value) throws IOException {
+            this.out.write(value & 0xff);
+            this.out.write((value >> 8) & 0xff);
+            this.out.write((value >> 16) & 0xff);
+            this.out.write((value >>> 24) & 0xff);
+        }
+    }
+}
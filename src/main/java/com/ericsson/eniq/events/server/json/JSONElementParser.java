@@ -0,0 +1,78 @@
+package com.ericsson.eniq.events.server.json;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Package scope internal class
+ * 
+ * Parses the placeholders left in a JSONArray whose text has been split at its elements, dividing the elements between the threads of a
+ * ForkJoinPool. Each element is parsed by a tokenizer of its own and put back at its own index, so the array keeps its original order.
+ * 
+ * @see JSONParser#setParallel(ForkJoinPool)
+ */
+final class JSONElementParser extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Number of tasks the elements are divided into for each thread of the pool, so that threads that finish early can steal work.
+     */
+    private static final int TASKS_PER_THREAD = 8;
+
+    private final List<Object> elements;
+
+    private final int from;
+
+    private final int to;
+
+    private final int granularity;
+
+    private final AtomicBoolean failed;
+
+    private JSONElementParser(final List<Object> elements, final int from, final int to, final int granularity, final AtomicBoolean failed) {
+        this.elements = elements;
+        this.from = from;
+        this.to = to;
+        this.granularity = granularity;
+        this.failed = failed;
+    }
+
+    /**
+     * Parse all the placeholders in an array.
+     * 
+     * @param pool threads to parse on
+     * @param array array split by a tokenizer
+     * @return false if any element could not be parsed
+     */
+    static boolean parseAll(final ForkJoinPool pool, final JSONArray array) {
+        final List<Object> elements = array.getBackingList();
+        final int granularity = Math.max(1, elements.size() / (pool.getParallelism() * TASKS_PER_THREAD));
+        final AtomicBoolean failed = new AtomicBoolean();
+        pool.invoke(new JSONElementParser(elements, 0, elements.size(), granularity, failed));
+        return !failed.get();
+    }
+
+    @Override
+    protected void compute() {
+        if (this.to - this.from > this.granularity) {
+            final int middle = (this.from + this.to) >>> 1;
+            invokeAll(new JSONElementParser(this.elements, this.from, middle, this.granularity, this.failed), new JSONElementParser(this.elements,
+                    middle, this.to, this.granularity, this.failed));
+            return;
+        }
+        for (int i = this.from; (i < this.to) && !this.failed.get(); i++) {
+            final Object element = this.elements.get(i);
+            if (element instanceof JSONLazyValue) {
+                try {
+                    this.elements.set(i, ((JSONLazyValue) element).parse());
+                } catch (final Exception exception) {
+                    // the whole text is parsed again on one thread, to report the first error in the text
+                    this.failed.set(true);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.ericsson.eniq.events.server.json;
+
+import java.io.IOException;
+
+/**
+ * Package scope internal class
+ * 
+ * The escaping of strings for {@link JSONObject#quote(String)}. The escape sequence of every character that needs one is looked up in a table made
+ * once, and the runs of characters between them are copied to the output in one append each, so a string is scanned once and a string with nothing
+ * to escape is copied whole.
+ * <p/>
+ * The characters escaped are the quote, the backslash, the control characters, U+0080 to U+009F and U+2000 to U+20FF, and a '/' that follows a
+ * '<', so that "</" cannot end a script element when the text is delivered in HTML.
+ */
+final class JSONEscaper {
+
+    /**
+     * Escape sequence of each ASCII character, or null for a character that is copied as it is.
+     */
+    private static final String[] ASCII_ESCAPES = new String[128];
+
+    /**
+     * Escape sequences of U+0080 to U+009F.
+     */
+    private static final String[] C1_ESCAPES = new String[32];
+
+    /**
+     * Escape sequences of U+2000 to U+20FF.
+     */
+    private static final String[] PUNCTUATION_ESCAPES = new String[256];
+
+    static {
+        for (int c = 0; c < ' '; c++) {
+            ASCII_ESCAPES[c] = unicodeEscape(c);
+        }
+        ASCII_ESCAPES['\b'] = "\\b";
+        ASCII_ESCAPES['\t'] = "\\t";
+        ASCII_ESCAPES['\n'] = "\\n";
+        ASCII_ESCAPES['\f'] = "\\f";
+        ASCII_ESCAPES['\r'] = "\\r";
+        ASCII_ESCAPES['"'] = "\\\"";
+        ASCII_ESCAPES['\\'] = "\\\\";
+        ASCII_ESCAPES['/'] = "\\/";
+        for (int i = 0; i < C1_ESCAPES.length; i++) {
+            C1_ESCAPES[i] = unicodeEscape(0x80 + i);
+        }
+        for (int i = 0; i < PUNCTUATION_ESCAPES.length; i++) {
+            PUNCTUATION_ESCAPES[i] = unicodeEscape(0x2000 + i);
+        }
+    }
+
+    private JSONEscaper() {
+    }
+
+    /**
+     * @param string A String, or null
+     * @return the string in double quotes with backslash sequences in all the right places.
+     * @see JSONObject#quote(String)
+     */
+    static String quote(final String string) {
+        if ((string == null) || (string.length() == 0)) {
+            return "\"\"";
+        }
+        final int first = nextEscape(string, 0);
+        final JSONCharOutput out = new JSONCharOutput();
+        try {
+            out.append('"');
+            write(string, first, out);
+            out.append('"');
+            return out.toString();
+        } catch (final IOException e) {
+            // cannot happen, the text is made in memory
+            return null;
+        } finally {
+            out.release();
+        }
+    }
+
+    /**
+     * Write a string in double quotes with backslash sequences in all the right places.
+     * 
+     * @param string A String, or null
+     * @param out the destination
+     * @throws IOException If the destination throws it.
+     */
+    static void quote(final String string, final Appendable out) throws IOException {
+        if ((string == null) || (string.length() == 0)) {
+            out.append("\"\"");
+            return;
+        }
+        out.append('"');
+        write(string, nextEscape(string, 0), out);
+        out.append('"');
+    }
+
+    /**
+     * Write the escaped characters of a string.
+     * 
+     * @param string the string
+     * @param first index of the first character to escape, or the length of the string if there is none
+     * @param out the destination
+     * @throws IOException If the destination throws it.
+     */
+    private static void write(final String string, final int first, final Appendable out) throws IOException {
+        final int len = string.length();
+        int start = 0;
+        for (int i = first; i < len; i = nextEscape(string, start)) {
+            if (i > start) {
+                out.append(string, start, i);
+            }
+            out.append(escapeOf(string.charAt(i)));
+            start = i + 1;
+        }
+        if (start == 0) {
+            out.append(string);
+        } else if (start < len) {
+            out.append(string, start, len);
+        }
+    }
+
+    /**
+     * @param string the string
+     * @param from index to start looking from
+     * @return the index of the next character that needs escaping, or the length of the string if there is none.
+     */
+    private static int nextEscape(final String string, final int from) {
+        final int len = string.length();
+        for (int i = from; i < len; i++) {
+            final char c = string.charAt(i);
+            if (c < 128) {
+                if ((ASCII_ESCAPES[c] != null) && ((c != '/') || ((i > 0) && (string.charAt(i - 1) == '<')))) {
+                    return i;
+                }
+            } else if ((c < 0xa0) || ((c >= 0x2000) && (c < 0x2100))) {
+                return i;
+            }
+        }
+        return len;
+    }
+
+    /**
+     * @param c a character that needs escaping
+     * @return its escape sequence
+     */
+    private static String escapeOf(final char c) {
+        final String rv;
+        if (c < 128) {
+            rv = ASCII_ESCAPES[c];
+        } else if (c < 0xa0) {
+            rv = C1_ESCAPES[c - 0x80];
+        } else {
+            rv = PUNCTUATION_ESCAPES[c - 0x2000];
+        }
+        return rv;
+    }
+
+    private static String unicodeEscape(final int c) {
+        final String t = "000" + Integer.toHexString(c);
+        return "\\u" + t.substring(t.length() - 4);
+    }
+}
@@ -0,0 +1,326 @@
+package com.ericsson.eniq.events.server.json;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A non-blocking receiver for UTF-8 text that arrives in chunks, such as an HTTP body read by an NIO selector thread. Each chunk is handed to
+ * {@link #feed(ByteBuffer)} as it is received; the feeder never waits for input, it just says whether the JSON text is complete yet:
+ * 
+ * <pre>
+ * final JSONFeeder feeder = new JSONParser().createFeeder();
+ * ...
+ * // on each read event
+ * if (feeder.feed(chunk)) {
+ *     final JSONObject request = feeder.getObject();
+ *     ...
+ * }
+ * </pre>
+ * 
+ * The feeder frames the text, it does not parse it as it arrives. The structure of the text is tracked as the bytes come in, so the end of the top
+ * level object or array is recognised by the chunk that holds it, without knowing the length of the body in advance, and a syntax error also
+ * completes the text as soon as it can be seen. Meanwhile the bytes are collected in a buffer that grows to hold the whole text. Once the text is
+ * complete, the parser that created the feeder parses the buffer in one go, and reports the result, or the syntax error, exactly as if it had been
+ * given the whole text at once. So the parse does not overlap the receiving of the text, and the memory of the whole body is needed; what the
+ * feeder saves is a thread blocked on the connection while the body arrives.
+ * <p/>
+ * A text that goes over the parser's limit on input length is completed as soon as it does, so that the error can be reported without buffering
+ * the rest of it.
+ * 
+ * @see JSONParser#createFeeder()
+ */
+public class JSONFeeder {
+
+    /**
+     * Before the top level value.
+     */
+    private static final int START = 0;
+
+    /**
+     * Between tokens, expecting a value, an object member's name or the end of a container.
+     */
+    private static final int VALUE = 1;
+
+    /**
+     * Between tokens, after a complete value.
+     */
+    private static final int AFTER_VALUE = 2;
+
+    /**
+     * Inside unquoted text.
+     */
+    private static final int UNQUOTED = 3;
+
+    /**
+     * Inside a quoted string.
+     */
+    private static final int QUOTED = 4;
+
+    /**
+     * After a backslash in a quoted string.
+     */
+    private static final int ESCAPE = 5;
+
+    /**
+     * The text is complete, or has an error.
+     */
+    private static final int DONE = 6;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final byte[] BYTE_ORDER_MARK = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+
+    private final JSONParser parser;
+
+    private byte[] data = new byte[INITIAL_CAPACITY];
+
+    private int count;
+
+    private int state;
+
+    private int depth;
+
+    private byte quote;
+
+    /**
+     * Number of bytes of a leading byte order mark seen so far, or its length once it can no longer appear.
+     */
+    private int startBytes;
+
+    /**
+     * Whether the previous byte was the '=' of a '=>' separator.
+     */
+    private boolean afterEquals;
+
+    /**
+     * Construct a feeder whose text is parsed by a parser.
+     * 
+     * @param parser the parser, with its settings
+     */
+    JSONFeeder(final JSONParser parser) {
+        this.parser = parser;
+        this.state = START;
+    }
+
+    /**
+     * Take bytes from a chunk of input. Bytes are consumed up to and including the one that completes the text, so anything after it, such as the
+     * start of a pipelined request, is left in the buffer.
+     * 
+     * @param chunk the next bytes of the text; its position is moved past the bytes consumed
+     * @return true once the text is complete and can be parsed
+     */
+    public boolean feed(final ByteBuffer chunk) {
+        final int start = chunk.position();
+        final int limit = chunk.limit();
+        final long room = this.parser.getMaxInputLength() - this.count;
+        int i = start;
+        while ((i < limit) && (this.state != DONE)) {
+            if (i - start > room) { // one byte over the limit has been taken, which is enough for the parse to reject the text
+                this.state = DONE;
+                break;
+            }
+            scan(chunk.get(i++));
+        }
+        final int length = i - start;
+        if (this.count > this.data.length - length) {
+            this.data = Arrays.copyOf(this.data, Math.max(this.data.length * 2, this.count + length));
+        }
+        final ByteBuffer source = chunk.duplicate();
+        source.limit(i);
+        source.get(this.data, this.count, length);
+        this.count += length;
+        chunk.position(i);
+        return this.state == DONE;
+    }
+
+    /**
+     * Record that there is no more input, so that an incomplete text is reported as the syntax error it is.
+     */
+    public void endOfInput() {
+        this.state = DONE;
+    }
+
+    /**
+     * @return true once the text is complete and can be parsed
+     */
+    public boolean isComplete() {
+        return this.state == DONE;
+    }
+
+    /**
+     * Parse the completed text as a JSONObject.
+     * 
+     * @return the JSONObject
+     * @throws JSONException If the text is not complete, or there is a syntax error or a duplicated key.
+     */
+    public JSONObject getObject() throws JSONException {
+        checkComplete();
+        return this.parser.parseObject(this.data, 0, this.count);
+    }
+
+    /**
+     * Parse the completed text as a JSONArray.
+     * 
+     * @return the JSONArray
+     * @throws JSONException If the text is not complete, or there is a syntax error.
+     */
+    public JSONArray getArray() throws JSONException {
+        checkComplete();
+        return this.parser.parseArray(this.data, 0, this.count);
+    }
+
+    /**
+     * Parse the completed text, reporting its structure to a handler.
+     * 
+     * @param handler receiver of the parse events
+     * @throws JSONException If the text is not complete, or there is a syntax error, or if the handler abandons the parse.
+     */
+    public void parse(final JSONHandler handler) throws JSONException {
+        checkComplete();
+        this.parser.parse(this.data, 0, this.count, handler);
+    }
+
+    /**
+     * Discard the text, so that the feeder can be used for the next one. The buffer is kept.
+     */
+    public void reset() {
+        this.count = 0;
+        this.state = START;
+        this.depth = 0;
+        this.startBytes = 0;
+        this.afterEquals = false;
+    }
+
+    private void checkComplete() throws JSONException {
+        if (this.state != DONE) {
+            throw new JSONException("The JSON text is not complete");
+        }
+    }
+
+    /**
+     * Move the structure on by one byte. Only ASCII bytes are significant; the bytes of multi-byte characters are all 0x80 or above, so they can
+     * only appear inside strings and unquoted text.
+     * 
+     * @param b the next byte
+     */
+    private void scan(final byte b) {
+        switch (this.state) {
+            case QUOTED:
+                if (b == this.quote) {
+                    this.state = AFTER_VALUE;
+                } else if (b == '\\') {
+                    this.state = ESCAPE;
+                } else if ((b == 0) || (b == '\n') || (b == '\r')) {
+                    this.state = DONE; // Unterminated string
+                }
+                return;
+            case ESCAPE:
+                this.state = (b == 0) || (b == '\n') || (b == '\r') ? DONE : QUOTED;
+                return;
+            case UNQUOTED:
+                if ((b < 0) || JSONTokenizer.isUnquotedTextChar((char) b)) {
+                    return;
+                }
+                this.state = AFTER_VALUE;
+                break;
+            case START:
+                scanStart(b);
+                return;
+            default:
+                break;
+        }
+        final boolean afterEquals = this.afterEquals;
+        this.afterEquals = false;
+        if ((b > 0) && (b <= ' ')) {
+            return;
+        }
+        if (this.state == VALUE) {
+            scanValue(b, afterEquals);
+        } else {
+            scanAfterValue(b);
+        }
+    }
+
+    /**
+     * Before the top level value only whitespace, a leading byte order mark and the start of an object or array are allowed.
+     */
+    private void scanStart(final byte b) {
+        switch (b) {
+            case '{':
+            case '[':
+            case '(':
+                this.depth = 1;
+                this.state = VALUE;
+                break;
+            default:
+                if ((this.startBytes < BYTE_ORDER_MARK.length) && (b == BYTE_ORDER_MARK[this.startBytes])) {
+                    this.startBytes++;
+                } else if ((b > 0) && (b <= ' ')) {
+                    this.startBytes = BYTE_ORDER_MARK.length;
+                } else {
+                    this.state = DONE;
+                }
+                break;
+        }
+    }
+
+    private void scanValue(final byte b, final boolean afterEquals) {
+        switch (b) {
+            case 0:
+                this.state = DONE;
+                break;
+            case '"':
+            case '\'':
+                this.quote = b;
+                this.state = QUOTED;
+                break;
+            case '{':
+            case '[':
+            case '(':
+                this.depth++;
+                break;
+            case '}':
+            case ']':
+                close();
+                break;
+            case ',': // an elided array element
+                break;
+            case '>':
+                if (!afterEquals) {
+                    this.state = UNQUOTED;
+                }
+                break;
+            default:
+                // this includes ')', which is text where a value is expected
+                this.state = (b < 0) || JSONTokenizer.isUnquotedTextChar((char) b) ? UNQUOTED : DONE;
+                break;
+        }
+    }
+
+    private void scanAfterValue(final byte b) {
+        switch (b) {
+            case '}':
+            case ']':
+            case ')':
+                close();
+                break;
+            case ',':
+            case ';':
+            case ':':
+                this.state = VALUE;
+                break;
+            case '=':
+                this.afterEquals = true;
+                this.state = VALUE;
+                break;
+            default:
+                this.state = DONE; // Expected a ',' or '}'
+                break;
+        }
+    }
+
+    private void close() {
+        this.depth--;
+        this.state = this.depth > 0 ? AFTER_VALUE : DONE;
+    }
+}
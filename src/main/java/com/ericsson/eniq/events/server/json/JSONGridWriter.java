@@ -0,0 +1,220 @@
+package com.ericsson.eniq.events.server.json;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+/**
+ * Writes the rows of a query result as a JSON array of grid rows, one object per row with a member for each column, straight to a
+ * {@link JSONWriter}, without a JSONObject, a map or a boxed value being made for each row:
+ * 
+ * <pre>
+ * final JSONWriter writer = new JSONWriter(outputStream);
+ * writer.beginObject().name(&quot;success&quot;).value(&quot;true&quot;).name(&quot;data&quot;);
+ * new JSONGridWriter(writer).writeRows(resultSet);
+ * writer.endObject().flush();
+ * </pre>
+ * 
+ * A writer is chosen for each column once, from its type: integer columns are read with getLong and written as integers, floating point columns
+ * with getDouble, boolean columns with getBoolean, character columns with getString and timestamp columns with getTimestamp, written as the
+ * quoted text of the Timestamp. A column of any other type, such as a DECIMAL, is read with getObject and written as
+ * {@link JSONWriter#value(Object)} writes it. So each cell is written with the text that a JSONObject holding the value returned by getObject
+ * would give it, except that a null cell is written as null rather than left out of its row.
+ * <p/>
+ * Rows are written as they are read, so a result of any size is written in constant memory.
+ * 
+ * @see JSONRowCursor
+ */
+public class JSONGridWriter {
+
+    private final JSONWriter writer;
+
+    /**
+     * @param writer the writer, positioned where a value is expected
+     */
+    public JSONGridWriter(final JSONWriter writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Write the remaining rows of a JDBC result set as an array, naming the members of each row by the column labels.
+     * 
+     * @param resultSet the result set, before its first row. It is not closed.
+     * @return the number of rows written
+     * @throws JSONException If the result set throws a SQLException, which is the cause, or a value cannot be written.
+     */
+    public long writeRows(final ResultSet resultSet) throws JSONException {
+        return writeRows(new JSONResultSetCursor(resultSet));
+    }
+
+    /**
+     * Write the remaining rows of a cursor as an array.
+     * 
+     * @param cursor the cursor, before its first row
+     * @return the number of rows written
+     * @throws JSONException If the cursor throws it, or a value cannot be written.
+     */
+    public long writeRows(final JSONRowCursor cursor) throws JSONException {
+        final int count = cursor.getColumnCount();
+        final Column[] columns = new Column[count];
+        for (int i = 0; i < count; i++) {
+            columns[i] = column(i + 1, cursor.getColumnType(i + 1));
+        }
+        final String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = cursor.getColumnName(i + 1);
+        }
+        long rows = 0;
+        this.writer.beginArray();
+        while (cursor.next()) {
+            this.writer.beginObject();
+            for (int i = 0; i < count; i++) {
+                this.writer.name(names[i]);
+                columns[i].write(cursor, this.writer);
+            }
+            this.writer.endObject();
+            rows++;
+        }
+        this.writer.endArray();
+        return rows;
+    }
+
+    /**
+     * @param index the column number, from 1
+     * @param type the java.sql.Types code of the column
+     * @return the writer of the column
+     */
+    private static Column column(final int index, final int type) {
+        final Column rv;
+        switch (type) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                rv = new LongColumn(index);
+                break;
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                rv = new DoubleColumn(index);
+                break;
+            case Types.BIT:
+            case Types.BOOLEAN:
+                rv = new BooleanColumn(index);
+                break;
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                rv = new StringColumn(index);
+                break;
+            case Types.TIMESTAMP:
+                rv = new TimestampColumn(index);
+                break;
+            default:
+                rv = new Column(index);
+                break;
+        }
+        return rv;
+    }
+
+    /**
+     * Writes the value of a column of any type, read as an Object.
+     */
+    private static class Column {
+
+        protected final int index;
+
+        Column(final int index) {
+            this.index = index;
+        }
+
+        /**
+         * Write the value of the column in the current row.
+         * 
+         * @param cursor the cursor
+         * @param writer the writer
+         * @throws JSONException If the cursor throws it, or the value cannot be written.
+         */
+        void write(final JSONRowCursor cursor, final JSONWriter writer) throws JSONException {
+            writer.value(cursor.getObject(this.index));
+        }
+    }
+
+    private static final class LongColumn extends Column {
+
+        LongColumn(final int index) {
+            super(index);
+        }
+
+        @Override
+        void write(final JSONRowCursor cursor, final JSONWriter writer) throws JSONException {
+            final long value = cursor.getLong(this.index);
+            if (cursor.wasNull()) {
+                writer.value((Object) null);
+            } else {
+                writer.value(value);
+            }
+        }
+    }
+
+    private static final class DoubleColumn extends Column {
+
+        DoubleColumn(final int index) {
+            super(index);
+        }
+
+        @Override
+        void write(final JSONRowCursor cursor, final JSONWriter writer) throws JSONException {
+            final double value = cursor.getDouble(this.index);
+            if (cursor.wasNull()) {
+                writer.value((Object) null);
+            } else {
+                writer.value(value);
+            }
+        }
+    }
+
+    private static final class BooleanColumn extends Column {
+
+        BooleanColumn(final int index) {
+            super(index);
+        }
+
+        @Override
+        void write(final JSONRowCursor cursor, final JSONWriter writer) throws JSONException {
+            final boolean value = cursor.getBoolean(this.index);
+            if (cursor.wasNull()) {
+                writer.value((Object) null);
+            } else {
+                writer.value(value);
+            }
+        }
+    }
+
+    private static final class StringColumn extends Column {
+
+        StringColumn(final int index) {
+            super(index);
+        }
+
+        @Override
+        void write(final JSONRowCursor cursor, final JSONWriter writer) throws JSONException {
+            writer.value(cursor.getString(this.index));
+        }
+    }
+
+    private static final class TimestampColumn extends Column {
+
+        TimestampColumn(final int index) {
+            super(index);
+        }
+
+        @Override
+        void write(final JSONRowCursor cursor, final JSONWriter writer) throws JSONException {
+            final Timestamp value = cursor.getTimestamp(this.index);
+            writer.value(value == null ? null : value.toString());
+        }
+    }
+}
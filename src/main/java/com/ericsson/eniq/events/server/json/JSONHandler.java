@@ -0,0 +1,57 @@
+package com.ericsson.eniq.events.server.json;
+
+/**
+ * Receives the structure of a JSON text as it is parsed, instead of a JSONObject or JSONArray tree being built for it. Callbacks are made in
+ * document order; an object's members arrive as a {@link #key(String)} followed by the events of its value.
+ * <p/>
+ * Any callback may throw a JSONException to abandon the parse.
+ * 
+ * @see JSONParser#parse(String, JSONHandler)
+ */
+public interface JSONHandler {
+
+    /**
+     * Called at the <code>{</code> that starts an object.
+     * 
+     * @throws JSONException to abandon the parse
+     */
+    void startObject() throws JSONException;
+
+    /**
+     * Called with the name of each object member, before its value.
+     * 
+     * @param key the member name
+     * @throws JSONException to abandon the parse
+     */
+    void key(String key) throws JSONException;
+
+    /**
+     * Called at the <code>}</code> that ends an object.
+     * 
+     * @throws JSONException to abandon the parse
+     */
+    void endObject() throws JSONException;
+
+    /**
+     * Called at the <code>[</code> or <code>(</code> that starts an array.
+     * 
+     * @throws JSONException to abandon the parse
+     */
+    void startArray() throws JSONException;
+
+    /**
+     * Called at the <code>]</code> or <code>)</code> that ends an array.
+     * 
+     * @throws JSONException to abandon the parse
+     */
+    void endArray() throws JSONException;
+
+    /**
+     * Called for each value that is not an object or an array.
+     * 
+     * @param value the value as it would be held in a JSONObject or JSONArray: a String, Integer, Long, Double, Boolean or JSONObject.NULL_OBJECT,
+     *            or null for an array element elided by consecutive commas
+     * @throws JSONException to abandon the parse
+     */
+    void value(Object value) throws JSONException;
+}
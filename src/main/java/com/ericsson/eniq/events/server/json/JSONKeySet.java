@@ -0,0 +1,216 @@
+package com.ericsson.eniq.events.server.json;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Package scope internal class
+ * 
+ * The keys of the objects open in a text that is being skipped, kept so that a duplicated key can be found without building a String or a map
+ * entry for every key. The characters of the keys are held in one array, as a stack: the keys of an object go on top of those of the objects it is
+ * nested in, and come off again when it ends. Keys are found through a hash table whose chains are stacks too, so the keys coming off the top of
+ * the stack are always at the heads of their chains.
+ * <p/>
+ * A key is added in two steps, because the duplicate has to be reported after the member's value has been read, as
+ * {@link JSONObject#putOnce(String, Object)} reports it: the characters of the key are pushed as it is read, and the key is only checked and
+ * entered into the table once the value, and any objects nested in it, have been skipped.
+ * 
+ * @see JSONTokenizer#skipValue()
+ */
+final class JSONKeySet {
+
+    private static final int NOT_ENTERED = -1;
+
+    private char[] characters = new char[256];
+
+    /**
+     * Number of characters in use.
+     */
+    private int length;
+
+    /**
+     * Index of the first character of each key.
+     */
+    private int[] starts = new int[16];
+
+    private int[] hashes = new int[16];
+
+    /**
+     * Index plus one of the next key in the same chain, 0 at the end of a chain, or NOT_ENTERED if the key is not in the table.
+     */
+    private int[] chains = new int[16];
+
+    /**
+     * Number of keys in use.
+     */
+    private int count;
+
+    /**
+     * Index plus one of the key at the head of each chain, or 0 for an empty chain.
+     */
+    private int[] table = new int[64];
+
+    /**
+     * Index of the first key of the innermost open object.
+     */
+    private int first;
+
+    /**
+     * Start the keys of an object.
+     * 
+     * @return the mark to pass to {@link #close(int)} when the object ends
+     */
+    int open() {
+        final int mark = this.first;
+        this.first = this.count;
+        return mark;
+    }
+
+    /**
+     * Remove the keys of the innermost object, entered or not.
+     * 
+     * @param mark the mark returned when the object was opened
+     */
+    void close(final int mark) {
+        for (int i = this.count - 1; i >= this.first; i--) {
+            if (this.chains[i] != NOT_ENTERED) {
+                this.table[this.hashes[i] & (this.table.length - 1)] = this.chains[i];
+            }
+        }
+        this.length = this.count > this.first ? this.starts[this.first] : this.length;
+        this.count = this.first;
+        this.first = mark;
+    }
+
+    /**
+     * Start a key of the innermost object, whose characters are then appended.
+     */
+    void startKey() {
+        if (this.count == this.starts.length) {
+            final int capacity = this.count * 2;
+            this.starts = Arrays.copyOf(this.starts, capacity);
+            this.hashes = Arrays.copyOf(this.hashes, capacity);
+            this.chains = Arrays.copyOf(this.chains, capacity);
+        }
+        this.starts[this.count] = this.length;
+        this.chains[this.count] = NOT_ENTERED;
+        this.count++;
+    }
+
+    /**
+     * @param c the next character of the key being read
+     */
+    void append(final char c) {
+        if (this.length == this.characters.length) {
+            this.characters = Arrays.copyOf(this.characters, this.length * 2);
+        }
+        this.characters[this.length++] = c;
+    }
+
+    /**
+     * @param buffer array holding the next characters of the key being read
+     * @param start index of the first of the characters
+     * @param count number of characters
+     */
+    void append(final char[] buffer, final int start, final int count) {
+        if (this.length + count > this.characters.length) {
+            this.characters = Arrays.copyOf(this.characters, Math.max(this.characters.length * 2, this.length + count));
+        }
+        System.arraycopy(buffer, start, this.characters, this.length, count);
+        this.length += count;
+    }
+
+    /**
+     * @param bytes buffer holding the next characters of the key being read, as ASCII bytes
+     * @param start index of the first of the bytes
+     * @param count number of bytes
+     */
+    void append(final ByteBuffer bytes, final int start, final int count) {
+        if (this.length + count > this.characters.length) {
+            this.characters = Arrays.copyOf(this.characters, Math.max(this.characters.length * 2, this.length + count));
+        }
+        for (int i = 0; i < count; i++) {
+            this.characters[this.length++] = (char) bytes.get(start + i);
+        }
+    }
+
+    /**
+     * @param s the next characters of the key being read
+     */
+    void append(final String s) {
+        for (int i = 0; i < s.length(); i++) {
+            append(s.charAt(i));
+        }
+    }
+
+    /**
+     * Enter the last key started, which must be the last key of the innermost object, unless that object already has it.
+     * 
+     * @return true if the key was entered, false if it is a duplicate
+     */
+    boolean enter() {
+        final int key = this.count - 1;
+        final int start = this.starts[key];
+        int hash = 0;
+        for (int i = start; i < this.length; i++) {
+            hash = 31 * hash + this.characters[i];
+        }
+        hash ^= hash >>> 16;
+        for (int other = this.table[hash & (this.table.length - 1)] - 1; other >= this.first; other = this.chains[other] - 1) {
+            if ((this.hashes[other] == hash) && sameCharacters(other, start)) {
+                return false;
+            }
+        }
+        this.hashes[key] = hash;
+        if (this.count > this.table.length - (this.table.length >> 2)) {
+            rehash(this.table.length * 2);
+        }
+        final int bucket = hash & (this.table.length - 1);
+        this.chains[key] = this.table[bucket];
+        this.table[bucket] = key + 1;
+        return true;
+    }
+
+    /**
+     * @return the last key started, for reporting it as a duplicate
+     */
+    String lastKey() {
+        final int start = this.starts[this.count - 1];
+        return new String(this.characters, start, this.length - start);
+    }
+
+    /**
+     * @param other index of an entered key, which is followed by another key
+     * @param start index of the first character of the last key
+     * @return true if the keys have the same characters
+     */
+    private boolean sameCharacters(final int other, final int start) {
+        final int from = this.starts[other];
+        final int to = this.starts[other + 1];
+        if (to - from != this.length - start) {
+            return false;
+        }
+        for (int i = from, j = start; i < to; i++, j++) {
+            if (this.characters[i] != this.characters[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Rebuild the table at a new size, entering the keys in the order they were added so that the chains remain stacks.
+     * 
+     * @param size the new number of chains, a power of 2
+     */
+    private void rehash(final int size) {
+        this.table = new int[size];
+        for (int i = 0; i < this.count; i++) {
+            if (this.chains[i] != NOT_ENTERED) {
+                final int bucket = this.hashes[i] & (size - 1);
+                this.chains[i] = this.table[bucket];
+                this.table[bucket] = i + 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.ericsson.eniq.events.server.json;
+
+/**
+ * Package scope internal class
+ * 
+ * Placeholder held by a lazily parsed JSONObject or JSONArray for a nested object or array that has been validated but not yet parsed. The value is
+ * parsed from its source text the first time it is asked for, and the same instance is returned from then on, whichever thread asks. The
+ * placeholder stays where it is: reading a value never modifies the JSONObject or JSONArray holding it, so a lazily parsed tree can be read from
+ * several threads without locking, as a tree parsed in full can.
+ * 
+ * @see JSONParser#setLazy(boolean)
+ */
+final class JSONLazyValue {
+
+    private JSONTokenizer source;
+
+    /**
+     * The value once it has been parsed. It is set once, under the lock, and read without it.
+     */
+    private volatile Object value;
+
+    /**
+     * @param source tokenizer positioned at the start of the value
+     */
+    JSONLazyValue(final JSONTokenizer source) {
+        this.source = source;
+    }
+
+    /**
+     * @return the JSONObject or JSONArray
+     */
+    Object get() {
+        final Object parsed = this.value;
+        if (parsed != null) {
+            return parsed;
+        }
+        try {
+            return parse();
+        } catch (final JSONException e) {
+            // cannot happen, the text was validated when it was skipped
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Parse the value, if that has not been done already.
+     * 
+     * @return the JSONObject or JSONArray
+     * @throws JSONException If there is a syntax error or a duplicated key, which can only happen if the text was split without being validated.
+     */
+    synchronized Object parse() throws JSONException {
+        if (this.source != null) {
+            final char c = this.source.nextClean();
+            this.source.back();
+            this.value = c == '{' ? this.source.createJSONObject() : this.source.createJSONArray();
+            this.source = null;
+        }
+        return this.value;
+    }
+
+    /**
+     * If a value is a placeholder, return the value it stands for.
+     * 
+     * @param value a value held by a JSONObject or JSONArray
+     * @return the value, parsed if necessary
+     */
+    static Object resolve(final Object value) {
+        return value instanceof JSONLazyValue ? ((JSONLazyValue) value).get() : value;
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(get());
+    }
+}
@@ -0,0 +1,367 @@
+package com.ericsson.eniq.events.server.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Reads newline delimited JSON (JSON Lines), one JSONObject per line, from a stream of UTF-8 text:
+ * 
+ * <pre>
+ * final long records = new JSONParser().setParallel(pool).createLinesReader(inputStream).read(new JSONRecordConsumer() {
+ *     public void record(final long line, final JSONObject record) {
+ *         ...
+ *     }
+ * });
+ * </pre>
+ * 
+ * The stream is read in large blocks and split into lines at the byte level. Lines are grouped into batches, and when the parser has a pool
+ * each batch is parsed on it, so that reading, parsing and consuming overlap and every core can be kept busy. At most a bounded number of batches
+ * are parsed or waiting to be consumed at any time, so memory use does not depend on the size of the stream. Records are handed to the consumer
+ * in the order of the lines, or, if the order does not matter, as soon as their batch is parsed.
+ * <p/>
+ * Blank lines are skipped. A line with a syntax error stops the read, with the error reported with its line number; in order, that is the first
+ * bad line of the stream. The parser's limit on input length applies to each line, and a line that goes over it stops the read as soon as it is
+ * seen, without being buffered in full.
+ * 
+ * @see JSONParser#createLinesReader(InputStream)
+ */
+public class JSONLinesReader {
+
+    /**
+     * Number of bytes read from the stream at a time. A line longer than this is read in a block of its own.
+     */
+    private static final int BLOCK_SIZE = 1 << 20;
+
+    /**
+     * Number of bytes of lines parsed together by one task.
+     */
+    private static final int BATCH_SIZE = 1 << 16;
+
+    /**
+     * Default number of batches in flight for each thread of the pool.
+     */
+    private static final int BATCHES_PER_THREAD = 4;
+
+    private final JSONParser parser;
+
+    private final ExecutorService pool;
+
+    private final InputStream source;
+
+    private boolean ordered = true;
+
+    private int maxPendingBatches;
+
+    /**
+     * Construct a reader.
+     * 
+     * @param parser parser for the records, with its settings
+     * @param pool threads to parse on, or null to parse on the calling thread
+     * @param parallelism number of threads in the pool
+     * @param source UTF-8 encoded JSON Lines
+     */
+    JSONLinesReader(final JSONParser parser, final ExecutorService pool, final int parallelism, final InputStream source) {
+        this.parser = parser;
+        this.pool = pool;
+        this.source = source;
+        this.maxPendingBatches = parallelism * BATCHES_PER_THREAD;
+    }
+
+    /**
+     * Set whether records are handed to the consumer in the order of their lines. Unordered, a slow batch does not hold up the ones after it.
+     * The default is ordered.
+     * 
+     * @param ordered false to take records as soon as they are parsed
+     * @return this.
+     */
+    public JSONLinesReader setOrdered(final boolean ordered) {
+        this.ordered = ordered;
+        return this;
+    }
+
+    /**
+     * Set how many batches of lines may be being parsed, or waiting to be consumed, at a time. Reading the stream waits while this many are
+     * outstanding.
+     * 
+     * @param maxPendingBatches the bound, at least 1
+     * @return this.
+     */
+    public JSONLinesReader setMaxPendingBatches(final int maxPendingBatches) {
+        if (maxPendingBatches < 1) {
+            throw new IllegalArgumentException("maxPendingBatches " + maxPendingBatches);
+        }
+        this.maxPendingBatches = maxPendingBatches;
+        return this;
+    }
+
+    /**
+     * Read the stream to its end, handing every record to a consumer. The stream is not closed.
+     * 
+     * @param consumer receiver of the records
+     * @return the number of records read
+     * @throws JSONException If a line has a syntax error or a duplicated key, or if the stream cannot be read, or if the consumer abandons the
+     *             read.
+     */
+    public long read(final JSONRecordConsumer consumer) throws JSONException {
+        final Pipeline pipeline = new Pipeline(consumer);
+        try {
+            byte[] block = new byte[BLOCK_SIZE];
+            int filled = 0;
+            long line = 1;
+            boolean end = false;
+            while (!end) {
+                final int count = readBlock(block, filled);
+                end = count < 0;
+                if (!end) {
+                    filled += count;
+                }
+                final int length = end ? filled : lastLineEnd(block, filled);
+                if ((length == 0) && !end) {
+                    if (filled > this.parser.getMaxInputLength()) {
+                        pipeline.finish();
+                        throw new JSONException("Line " + line + ": Input longer than " + this.parser.getMaxInputLength() + " bytes");
+                    }
+                    if (filled == block.length) {
+                        block = Arrays.copyOf(block, block.length * 2);
+                    }
+                    continue;
+                }
+                line = pipeline.submitLines(block, length, line);
+
+                // the lines submitted keep the block, so the incomplete last line starts a new one
+                final byte[] next = new byte[Math.max(BLOCK_SIZE, (filled - length) * 2)];
+                System.arraycopy(block, length, next, 0, filled - length);
+                filled -= length;
+                block = next;
+            }
+            return pipeline.finish();
+        } finally {
+            pipeline.cancel();
+        }
+    }
+
+    /**
+     * Fill the rest of a block from the stream, as far as the stream can provide without reaching its end.
+     * 
+     * @return the number of bytes read, or -1 at the end of the stream
+     */
+    private int readBlock(final byte[] block, final int filled) throws JSONException {
+        try {
+            int total = 0;
+            while (filled + total < block.length) {
+                final int count = this.source.read(block, filled + total, block.length - filled - total);
+                if (count < 0) {
+                    return total == 0 ? -1 : total;
+                }
+                total += count;
+            }
+            return total;
+        } catch (final IOException exception) {
+            throw new JSONException(exception);
+        }
+    }
+
+    /**
+     * @return the length of the complete lines at the start of a block, including the newline that ends the last of them
+     */
+    private static int lastLineEnd(final byte[] block, final int filled) {
+        for (int i = filled - 1; i >= 0; i--) {
+            if (block[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Lines parsed by one task, and the records or error it produced.
+     */
+    private final class Batch implements Callable<Batch> {
+
+        private final byte[] data;
+
+        private final int[] starts;
+
+        private final int count;
+
+        private final long firstLine;
+
+        private final JSONObject[] records;
+
+        private JSONException error;
+
+        Batch(final byte[] data, final int[] starts, final int count, final long firstLine) {
+            this.data = data;
+            this.starts = starts;
+            this.count = count;
+            this.firstLine = firstLine;
+            this.records = new JSONObject[count];
+        }
+
+        public Batch call() {
+            for (int i = 0; i < this.count; i++) {
+                final int start = this.starts[i];
+                final int length = this.starts[i + 1] - start;
+                if (!isBlank(this.data, start, length)) {
+                    try {
+                        this.records[i] = JSONLinesReader.this.parser.parseObject(this.data, start, length);
+                    } catch (final JSONException exception) {
+                        this.error = new JSONException("Line " + (this.firstLine + i) + ": " + exception.getMessage());
+                        this.error.initCause(exception);
+                        break;
+                    }
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Hand the records to the consumer, in order, up to the first bad line.
+         * 
+         * @return the number of records handed over
+         */
+        long deliver(final JSONRecordConsumer consumer) throws JSONException {
+            long delivered = 0;
+            for (int i = 0; i < this.count; i++) {
+                if (this.records[i] != null) {
+                    consumer.record(this.firstLine + i, this.records[i]);
+                    delivered++;
+                }
+            }
+            if (this.error != null) {
+                throw this.error;
+            }
+            return delivered;
+        }
+    }
+
+    private static boolean isBlank(final byte[] data, final int start, final int length) {
+        for (int i = start; i < start + length; i++) {
+            if ((data[i] < 0) || (data[i] > ' ')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Batches on their way from the reading thread, through the pool, to the consumer.
+     */
+    private final class Pipeline {
+
+        private final JSONRecordConsumer consumer;
+
+        private final Deque<Future<Batch>> pending = new ArrayDeque<Future<Batch>>();
+
+        /**
+         * The batches as they complete, when the records are not ordered, or null.
+         */
+        private final CompletionService<Batch> completed;
+
+        private long records;
+
+        Pipeline(final JSONRecordConsumer consumer) {
+            this.consumer = consumer;
+            // in order the oldest batch is always the one waited for, and a completion queue would keep every batch until the read ends
+            if ((JSONLinesReader.this.pool == null) || JSONLinesReader.this.ordered) {
+                this.completed = null;
+            } else {
+                this.completed = new ExecutorCompletionService<Batch>(JSONLinesReader.this.pool);
+            }
+        }
+
+        /**
+         * Divide the complete lines at the start of a block into batches and start them.
+         * 
+         * @return the number of the line after the last one submitted
+         */
+        long submitLines(final byte[] block, final int length, final long firstLine) throws JSONException {
+            long line = firstLine;
+            int batchStart = 0;
+            while (batchStart < length) {
+                int[] starts = new int[64];
+                int count = 0;
+                int position = batchStart;
+                while ((position < length) && (position - batchStart < BATCH_SIZE)) {
+                    if (count + 1 == starts.length) {
+                        starts = Arrays.copyOf(starts, starts.length * 2);
+                    }
+                    starts[count++] = position;
+                    while ((position < length) && (block[position++] != '\n')) {
+                        // find the end of the line
+                    }
+                }
+                starts[count] = position;
+                submit(new Batch(block, starts, count, line));
+                line += count;
+                batchStart = position;
+            }
+            return line;
+        }
+
+        private void submit(final Batch batch) throws JSONException {
+            if (JSONLinesReader.this.pool == null) {
+                this.records += batch.call().deliver(this.consumer);
+                return;
+            }
+            if (this.pending.size() >= JSONLinesReader.this.maxPendingBatches) {
+                deliverNext();
+            }
+            this.pending.addLast(this.completed == null ? JSONLinesReader.this.pool.submit(batch) : this.completed.submit(batch));
+        }
+
+        /**
+         * Wait for a batch, the oldest one if the records are ordered, and hand its records to the consumer.
+         */
+        private void deliverNext() throws JSONException {
+            try {
+                final Future<Batch> next;
+                if (this.completed == null) {
+                    next = this.pending.removeFirst();
+                } else {
+                    next = this.completed.take();
+                    this.pending.remove(next);
+                }
+                this.records += next.get().deliver(this.consumer);
+            } catch (final InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new JSONException(exception);
+            } catch (final ExecutionException exception) {
+                final Throwable cause = exception.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new JSONException(cause);
+            }
+        }
+
+        /**
+         * @return the number of records read, once all batches have been handed over
+         */
+        long finish() throws JSONException {
+            while (!this.pending.isEmpty()) {
+                deliverNext();
+            }
+            return this.records;
+        }
+
+        /**
+         * Abandon the batches still outstanding after a failure.
+         */
+        void cancel() {
+            for (final Future<Batch> future : this.pending) {
+                future.cancel(false);
+            }
+            this.pending.clear();
+        }
+    }
+}
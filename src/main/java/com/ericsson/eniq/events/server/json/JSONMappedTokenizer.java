@@ -0,0 +1,82 @@
+package com.ericsson.eniq.events.server.json;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Package scope internal class
+ * 
+ * A JSONByteTokenizer that reads a file through memory mappings of its channel, so the text is read straight out of the OS page cache instead of
+ * being copied onto the heap first.
+ * <p/>
+ * A single mapping cannot exceed 2 GB, so the file is mapped one segment at a time and each segment is mapped only once the previous one has been
+ * consumed. The tokenizer never needs to look back further than the character it last read, so segments do not have to overlap.
+ * 
+ * @see JSONParser
+ */
+class JSONMappedTokenizer extends JSONByteTokenizer {
+
+    private final FileChannel channel;
+
+    private final long size;
+
+    private final long segmentSize;
+
+    /**
+     * File offset at which the next segment starts.
+     */
+    private long mapped;
+
+    /**
+     * Construct a tokenizer over the whole of a file. The channel may be closed once parsing has finished; the mappings stay valid until they are
+     * garbage collected.
+     * 
+     * @param channel channel of a file holding UTF-8 encoded JSON text, open for reading
+     * @param segmentSize maximum number of bytes mapped at a time, at most Integer.MAX_VALUE
+     * @throws JSONException if the file cannot be mapped
+     */
+    JSONMappedTokenizer(final FileChannel channel, final long segmentSize) throws JSONException {
+        super(ByteBuffer.allocate(0));
+        if ((segmentSize <= 0) || (segmentSize > Integer.MAX_VALUE)) {
+            throw new IllegalArgumentException("Invalid segment size " + segmentSize);
+        }
+        this.channel = channel;
+        this.segmentSize = segmentSize;
+        try {
+            this.size = channel.size();
+        } catch (final IOException exception) {
+            throw new JSONException(exception);
+        }
+        if (fill()) {
+            skipByteOrderMark();
+        }
+    }
+
+    @Override
+    boolean isRandomAccess() {
+        return this.size <= this.segmentSize;
+    }
+
+    @Override
+    void setMaxInputLength(final long maxInputLength) throws JSONException {
+        if (this.size > maxInputLength) {
+            throw new JSONException("Input longer than " + maxInputLength + " bytes");
+        }
+    }
+
+    @Override
+    boolean fill() throws JSONException {
+        if (this.mapped >= this.size) {
+            return false;
+        }
+        final long length = Math.min(this.segmentSize, this.size - this.mapped);
+        try {
+            setBuffer(this.channel.map(FileChannel.MapMode.READ_ONLY, this.mapped, length));
+        } catch (final IOException exception) {
+            throw new JSONException(exception);
+        }
+        this.mapped += length;
+        return true;
+    }
+}
@@ -0,0 +1,125 @@
+package com.ericsson.eniq.events.server.json;
+
+import java.io.IOException;
+
+/**
+ * Package scope internal class
+ * 
+ * The text of numbers for {@link JSONObject#numberToString(Number)}. Integers are written digit by digit straight into the output. Other numbers
+ * are written from their <code>toString</code>, with the trailing zeros of the fraction, and the decimal point if nothing is left after it, found
+ * in one scan and left out of the range appended, rather than shaved off one substring at a time.
+ */
+final class JSONNumbers {
+
+    private static final int MAX_LONG_DIGITS = 19;
+
+    private JSONNumbers() {
+    }
+
+    /**
+     * @param n A finite Number
+     * @return its text
+     * @see JSONObject#numberToString(Number)
+     */
+    static String toString(final Number n) {
+        final String rv;
+        if (isIntegral(n)) {
+            rv = n.toString();
+        } else {
+            final String s = n.toString();
+            final int end = trimmedLength(s);
+            rv = end == s.length() ? s : s.substring(0, end);
+        }
+        return rv;
+    }
+
+    /**
+     * Write the text of a number, as {@link #toString(Number)} makes it.
+     * 
+     * @param n A finite Number
+     * @param out the destination
+     * @throws IOException If the destination throws it.
+     */
+    static void write(final Number n, final Appendable out) throws IOException {
+        if (isIntegral(n)) {
+            write(n.longValue(), out);
+        } else {
+            final String s = n.toString();
+            out.append(s, 0, trimmedLength(s));
+        }
+    }
+
+    /**
+     * Write the text of a finite double, as {@link #toString(Number)} makes it.
+     * 
+     * @param d A finite double
+     * @param out the destination
+     * @throws IOException If the destination throws it.
+     */
+    static void write(final double d, final Appendable out) throws IOException {
+        final String s = Double.toString(d);
+        out.append(s, 0, trimmedLength(s));
+    }
+
+    /**
+     * Write the decimal digits of an integer, as Long.toString makes them.
+     * 
+     * @param value the integer
+     * @param out the destination
+     * @throws IOException If the destination throws it.
+     */
+    static void write(final long value, final Appendable out) throws IOException {
+        // work with the negative, which Long.MIN_VALUE has
+        long negative = value;
+        if (value < 0) {
+            out.append('-');
+        } else {
+            negative = -value;
+        }
+        long power = 1;
+        for (int digits = 1; (digits < MAX_LONG_DIGITS) && (negative <= -power * 10); digits++) {
+            power *= 10;
+        }
+        for (; power > 0; power /= 10) {
+            out.append((char) ('0' - negative / power));
+            negative %= power;
+        }
+    }
+
+    /**
+     * @param n A Number
+     * @return true if the toString of n is the same as Long.toString of its value.
+     */
+    private static boolean isIntegral(final Number n) {
+        return (n instanceof Integer) || (n instanceof Long) || (n instanceof Short) || (n instanceof Byte);
+    }
+
+    /**
+     * @param s the toString of a number
+     * @return the length of s without the trailing zeros of a fraction, and without the decimal point if they are all of the fraction. A number
+     *         with an exponent is left as it is.
+     */
+    private static int trimmedLength(final String s) {
+        final int len = s.length();
+        int point = -1;
+        for (int i = 0; i < len; i++) {
+            final char c = s.charAt(i);
+            if ((c == 'e') || (c == 'E')) {
+                return len;
+            }
+            if ((c == '.') && (point < 0)) {
+                point = i;
+            }
+        }
+        int end = len;
+        if (point > 0) {
+            while (s.charAt(end - 1) == '0') {
+                end--;
+            }
+            if (s.charAt(end - 1) == '.') {
+                end--;
+            }
+        }
+        return end;
+    }
+}
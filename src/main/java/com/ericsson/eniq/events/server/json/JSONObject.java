@@ -1,5 +1,6 @@
 package com.ericsson.eniq.events.server.json;
 
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -80,6 +81,11 @@ public class JSONObject {
      */
     private transient final Map<Object, Object> BACKING_MAP = createEmptyBackingMap();
 
+    /**
+     * The text of this JSONObject, if it is cached, or the record of the cached texts that include it.
+     */
+    private transient volatile JSONTextCache textCache;
+
     /**
      * It is sometimes more convenient and less ambiguous to have a <code>NULL</code> object than to use Java's <code>null</code> value.
      * <code>JSONObject.NULL.equals(null)</code> returns <code>true</code>. <code>JSONObject.NULL.toString()</code> returns <code>"null"</code>.
@@ -99,12 +105,29 @@ public class JSONObject {
      * @throws JSONException If there is a syntax error in the source string or a duplicated key.
      */
     protected JSONObject(final JSONTokenizer tokenizer) throws JSONException {
-        char character;
-        String key;
-
         if (tokenizer.nextClean() != '{') {
             throw tokenizer.syntaxError("A JSONObject text must begin with '{'");
         }
+        tokenizer.enterContainer();
+        if (tokenizer.isStrict()) {
+            readStrictMembers(tokenizer);
+        } else {
+            readMembers(tokenizer);
+        }
+        tokenizer.leaveContainer();
+    }
+
+    /**
+     * Read the members of an object whose opening brace has been consumed.
+     * 
+     * @param tokenizer a tokenizer
+     * @throws JSONException If there is a syntax error in the source string or a duplicated key.
+     */
+    private void readMembers(final JSONTokenizer tokenizer) throws JSONException {
+        char character;
+        String key;
+        int members = 0;
+
         for (;;) {
             character = tokenizer.nextClean();
             switch (character) {
@@ -114,8 +137,9 @@ public class JSONObject {
                     return;
                 default:
                     tokenizer.back();
-                    key = tokenizer.nextValue().toString();
+                    key = tokenizer.nextKey();
             }
+            tokenizer.checkMemberCount(++members);
 
             /*
              * The key is followed by ':'. We will also tolerate '=' or '=>'.
@@ -129,7 +153,7 @@ public class JSONObject {
             } else if (character != ':') {
                 throw tokenizer.syntaxError("Expected a ':' after a key");
             }
-            putOnce(key, tokenizer.nextValue());
+            putOnce(key, tokenizer.nextMemberValue(key));
 
             /*
              * Pairs are separated by ','. We will also tolerate ';'.
@@ -151,6 +175,41 @@ public class JSONObject {
         }
     }
 
+    /**
+     * Read the members of an object in a strict text, whose opening brace has been consumed. Keys must be in double quotes and followed by ':', and
+     * pairs are separated by ',' alone, with none after the last.
+     * 
+     * @param tokenizer a strict tokenizer
+     * @throws JSONException If there is a syntax error in the source string or a duplicated key.
+     */
+    private void readStrictMembers(final JSONTokenizer tokenizer) throws JSONException {
+        char character = tokenizer.nextClean();
+        if (character == '}') {
+            return;
+        }
+        int members = 0;
+        for (;;) {
+            if (character != '"') {
+                throw tokenizer.strictKeyError(character);
+            }
+            final String key = tokenizer.nextKey(character);
+            tokenizer.checkMemberCount(++members);
+            if (tokenizer.nextClean() != ':') {
+                throw tokenizer.syntaxError("Expected a ':' after a key");
+            }
+            putOnce(key, tokenizer.nextMemberValue(key));
+            switch (tokenizer.nextClean()) {
+                case ',':
+                    character = tokenizer.nextClean();
+                    break;
+                case '}':
+                    return;
+                default:
+                    throw tokenizer.syntaxError("Expected a ',' or '}'");
+            }
+        }
+    }
+
     /**
      * Construct a JSONObject from a source JSON text string. This is the most commonly used JSONObject constructor.
      * 
@@ -162,6 +221,20 @@ public class JSONObject {
         this(new JSONTokenizer(source));
     }
 
+    /**
+     * Construct a JSONObject from a region of a char array holding a JSON text. The characters are tokenized in place, without first being copied
+     * into a String.
+     * 
+     * @param source A char array holding text beginning with <code>{</code>&nbsp;<small>(left brace)</small> and ending with <code>}</code>
+     *            &nbsp;<small>(right brace)</small>.
+     * @param offset index of the first character of the text.
+     * @param length number of characters in the text.
+     * @throws JSONException If there is a syntax error in the source text or a duplicated key.
+     */
+    public JSONObject(final char[] source, final int offset, final int length) throws JSONException {
+        this(new JSONTokenizer(source, offset, length));
+    }
+
     /**
      * Get the value object associated with a key.
      * 
@@ -337,18 +410,7 @@ public class JSONObject {
             throw new JSONException("Null pointer");
         }
         testValidity(n);
-
-        // Shave off trailing zeros and decimal point, if possible.
-        String s = n.toString();
-        if ((s.indexOf('.') > 0) && (s.indexOf('e') < 0) && (s.indexOf('E') < 0)) {
-            while (s.endsWith("0")) {
-                s = s.substring(0, s.length() - 1);
-            }
-            if (s.endsWith(".")) {
-                s = s.substring(0, s.length() - 1);
-            }
-        }
-        return s;
+        return JSONNumbers.toString(n);
     }
 
     /**
@@ -358,7 +420,10 @@ public class JSONObject {
      * @return An object which is the value, or null if there is no value.
      */
     public final Object opt(final String key) {
-        return key == null ? null : this.BACKING_MAP.get(key);
+        if (key == null) {
+            return null;
+        }
+        return JSONLazyValue.resolve(this.BACKING_MAP.get(key));
     }
 
     /**
@@ -377,6 +442,7 @@ public class JSONObject {
         if (value != null) {
             testValidity(value);
             this.BACKING_MAP.put(key, value);
+            changed();
         } else {
             remove(key);
         }
@@ -410,57 +476,18 @@ public class JSONObject {
      * @return A String correctly formatted for insertion in a JSON text.
      */
     public static String quote(final String string) {
-        if ((string == null) || (string.length() == 0)) {
-            return "\"\"";
-        }
-
-        char b;
-        char c = 0;
-        final int len = string.length();
-        final StringBuilder sb = new StringBuilder(len + 4);
-
-        sb.append('"');
-        for (int i = 0; i < len; i += 1) {
-            b = c;
-            c = string.charAt(i);
-            switch (c) {
-                case '\\':
-                case '"':
-                    sb.append('\\');
-                    sb.append(c);
-                    break;
-                case '/':
-                    if (b == '<') {
-                        sb.append('\\');
-                    }
-                    sb.append(c);
-                    break;
-                case '\b':
-                    sb.append("\\b");
-                    break;
-                case '\t':
-                    sb.append("\\t");
-                    break;
-                case '\n':
-                    sb.append("\\n");
-                    break;
-                case '\f':
-                    sb.append("\\f");
-                    break;
-                case '\r':
-                    sb.append("\\r");
-                    break;
-                default:
-                    if ((c < ' ') || ((c >= '\u0080') && (c < '\u00a0')) || ((c >= '\u2000') && (c < '\u2100'))) {
-                        final String t = "000" + Integer.toHexString(c);
-                        sb.append("\\u").append(t.substring(t.length() - 4));
-                    } else {
-                        sb.append(c);
-                    }
-            }
-        }
-        sb.append('"');
-        return sb.toString();
+        return JSONEscaper.quote(string);
+    }
+
+    /**
+     * Write a string in double quotes with backslash sequences in all the right places, as {@link #quote(String)} would produce it.
+     * 
+     * @param string A String
+     * @param out the destination
+     * @throws IOException If the destination cannot be written to.
+     */
+    static void quote(final String string, final Appendable out) throws IOException {
+        JSONEscaper.quote(string, out);
     }
 
     /**
@@ -470,7 +497,54 @@ public class JSONObject {
      * @return The value that was associated with the name, or null if there was no value.
      */
     public Object remove(final String key) {
-        return this.BACKING_MAP.remove(key);
+        final Object value = this.BACKING_MAP.remove(key);
+        if (value != null) {
+            changed();
+        }
+        return JSONLazyValue.resolve(value);
+    }
+
+    /**
+     * Keep the JSON text of this JSONObject once it has been made, and write it from then on as one copy of that text, until this JSONObject or
+     * any JSONObject or JSONArray in its tree is changed with put, putOnce or remove. Caching suits values that are written many times for each
+     * time they change, such as metadata sent with every response.
+     * <p/>
+     * Values other than JSONObject and JSONArray, such as Strings and Numbers, are expected not to change while they are in a cached tree.
+     * <p/>
+     * So that a change can be traced to the texts that include it, each JSONObject and JSONArray written while a cached text is made keeps a small
+     * record of the cached values above it, whether its own text is cached or not. A large tree cached at its root therefore holds one such record
+     * for every object and array in it. A text made while the tree is changed on another thread is not kept.
+     * 
+     * @param cached true to cache the text, false to drop it and stop caching it
+     * @return this.
+     */
+    public JSONObject setTextCached(final boolean cached) {
+        if (cached) {
+            textCache().setEnabled(true);
+        } else if (this.textCache != null) {
+            this.textCache.setEnabled(false);
+        }
+        return this;
+    }
+
+    /**
+     * @return the cache of this JSONObject, made if it has none
+     */
+    private synchronized JSONTextCache textCache() {
+        if (this.textCache == null) {
+            this.textCache = new JSONTextCache();
+        }
+        return this.textCache;
+    }
+
+    /**
+     * Drop the cached texts that include this JSONObject, after a change.
+     */
+    private void changed() {
+        final JSONTextCache cache = this.textCache;
+        if (cache != null) {
+            cache.invalidate();
+        }
     }
 
     /**
@@ -510,31 +584,145 @@ public class JSONObject {
 
             final char b = s.charAt(0);
             if (((b >= '0') && (b <= '9')) || (b == '.') || (b == '-') || (b == '+')) {
-                if ((b == '0') && (s.length() > 2) && ((s.charAt(1) == 'x') || (s.charAt(1) == 'X'))) {
-                    try {
-                        result = Integer.parseInt(s.substring(2), 16);
-                    } catch (final Exception ignore) {
-                    }
-                }
-                try {
-                    if ((s.indexOf('.') > -1) || (s.indexOf('e') > -1) || (s.indexOf('E') > -1)) {
-                        result = Double.valueOf(s);
-                    } else {
-                        final Long myLong = Long.valueOf(s);
-                        if (myLong == myLong.intValue()) {
-                            result = myLong.intValue();
-                        } else {
-                            result = myLong;
-                        }
-                    }
-                } catch (final Exception ignore) {
-                }
+                result = stringToNumber(s);
             }
         }
 
         return (result != null ? result : s);
     }
 
+    /**
+     * Convert a string that might be a number, without using exceptions to find out that it is not one. The string is read exactly as
+     * <code>Integer.parseInt(s.substring(2), 16)</code> for the 0x- convention, <code>Double.valueOf</code> if it contains '.', 'e' or 'E', and
+     * <code>Long.valueOf</code> otherwise would read it, but text that is not a number costs no more than a scan of its characters.
+     * 
+     * @param s A String starting with a digit, '.', '-' or '+'.
+     * @return An Integer, Long or Double, or null if the string is not a number.
+     */
+    private static Object stringToNumber(final String s) {
+        if ((s.length() > 2) && (s.charAt(0) == '0') && ((s.charAt(1) == 'x') || (s.charAt(1) == 'X'))) {
+            final Object hex = parseInteger(s, 2, 16, Integer.MIN_VALUE);
+            if (hex != null) {
+                return hex;
+            }
+        }
+        if ((s.indexOf('.') > -1) || (s.indexOf('e') > -1) || (s.indexOf('E') > -1)) {
+            return isDouble(s) ? Double.valueOf(s) : null;
+        }
+        return parseInteger(s, 0, 10, Long.MIN_VALUE);
+    }
+
+    /**
+     * Parse an optionally signed integer as <code>Long.parseLong</code> and <code>Integer.parseInt</code> do, accumulating negatively so that the
+     * most negative value can be represented.
+     * 
+     * @param s the text
+     * @param start index of the first character of the integer, which runs to the end of the text
+     * @param radix the radix
+     * @param minValue the most negative value allowed, Integer.MIN_VALUE or Long.MIN_VALUE
+     * @return the value as an Integer if it fits, otherwise as a Long, or null if the text is not an integer in range.
+     */
+    private static Object parseInteger(final String s, final int start, final int radix, final long minValue) {
+        final int length = s.length();
+        int i = start;
+        boolean negative = false;
+        long limit = minValue + 1;
+        final char first = s.charAt(i);
+        if (first < '0') {
+            if (first == '-') {
+                negative = true;
+                limit = minValue;
+            } else if (first != '+') {
+                return null;
+            }
+            if (++i == length) {
+                return null;
+            }
+        }
+        final long multiplyMin = limit / radix;
+        long value = 0;
+        while (i < length) {
+            final int digit = Character.digit(s.charAt(i++), radix);
+            if ((digit < 0) || (value < multiplyMin)) {
+                return null;
+            }
+            value *= radix;
+            if (value < limit + digit) {
+                return null;
+            }
+            value -= digit;
+        }
+        if (!negative) {
+            value = -value;
+        }
+        if (value == (int) value) {
+            return Integer.valueOf((int) value);
+        }
+        return Long.valueOf(value);
+    }
+
+    /**
+     * Check whether <code>Double.valueOf</code> would accept a string, including hexadecimal floating point and a trailing type suffix, but not
+     * NaN or Infinity, which cannot contain '.', 'e' or 'E'.
+     * 
+     * @param s the text, which does not start with whitespace
+     * @return true if the text is a floating point number
+     */
+    private static boolean isDouble(final String s) {
+        int end = s.length();
+        while ((end > 0) && (s.charAt(end - 1) <= ' ')) {
+            end--;
+        }
+        int i = 0;
+        if ((i < end) && ((s.charAt(i) == '+') || (s.charAt(i) == '-'))) {
+            i++;
+        }
+        final boolean hex = (end - i > 1) && (s.charAt(i) == '0') && ((s.charAt(i + 1) == 'x') || (s.charAt(i + 1) == 'X'));
+        final int radix = hex ? 16 : 10;
+        if (hex) {
+            i += 2;
+        }
+        int digits = 0;
+        while ((i < end) && isDigit(s.charAt(i), radix)) {
+            i++;
+            digits++;
+        }
+        if ((i < end) && (s.charAt(i) == '.')) {
+            i++;
+            while ((i < end) && isDigit(s.charAt(i), radix)) {
+                i++;
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            return false;
+        }
+        final char exponent = i < end ? s.charAt(i) : 0;
+        if (hex ? (exponent == 'p') || (exponent == 'P') : (exponent == 'e') || (exponent == 'E')) {
+            i++;
+            if ((i < end) && ((s.charAt(i) == '+') || (s.charAt(i) == '-'))) {
+                i++;
+            }
+            final int exponentStart = i;
+            while ((i < end) && isDigit(s.charAt(i), 10)) {
+                i++;
+            }
+            if (i == exponentStart) {
+                return false;
+            }
+        } else if (hex) {
+            return false;
+        }
+        if ((i < end) && ("fFdD".indexOf(s.charAt(i)) > -1)) {
+            i++;
+        }
+        return i == end;
+    }
+
+    private static boolean isDigit(final char c, final int radix) {
+        return ((c >= '0') && (c <= '9')) || ((radix == 16) && (((c >= 'a') && (c <= 'f')) || ((c >= 'A') && (c <= 'F'))));
+    }
+
     /**
      * Throw an exception if the object is an NaN or infinite number.
      * 
@@ -587,23 +775,148 @@ public class JSONObject {
     @Override
     public String toString() {
         try {
-            final Iterator<Object> keys = keys();
-            final StringBuilder sb = new StringBuilder("{");
+            final JSONTextCache cache = this.textCache;
+            if ((cache != null) && cache.isEnabled()) {
+                return cachedText(cache);
+            }
+            final JSONCharOutput out = new JSONCharOutput();
+            try {
+                write(out);
+                return out.toString();
+            } finally {
+                out.release();
+            }
+        } catch (final Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Write the JSON text of this JSONObject, as {@link #toString()} would make it, to a StringBuilder, a Writer or any other Appendable. The whole
+     * tree is written straight into the one destination, rather than each nested value being made into a String of its own and then copied into
+     * the text of its parent. A nested value that contains an invalid number, which toString() would write as null or [], is reported instead,
+     * because the text written for it may already have been passed on.
+     * <p/>
+     * Warning: This method assumes that the data structure is acyclical.
+     * 
+     * @param out the destination
+     * @return the destination
+     * @throws JSONException If the object contains an invalid number, or if the destination cannot be written to.
+     */
+    public Appendable writeTo(final Appendable out) throws JSONException {
+        try {
+            write(out);
+        } catch (final IOException exception) {
+            throw new JSONException(exception);
+        }
+        return out;
+    }
+
+    /**
+     * Write the JSON text of this JSONObject.
+     * 
+     * @param out the destination
+     * @throws JSONException If the object contains an invalid number.
+     * @throws IOException If the destination cannot be written to.
+     */
+    void write(final Appendable out) throws JSONException, IOException {
+        write(out, null);
+    }
+
+    /**
+     * Write the JSON text of this JSONObject, from its cached text if it has one.
+     * 
+     * @param out the destination
+     * @param owner the cache whose text is being made, or null
+     * @throws JSONException If the object contains an invalid number.
+     * @throws IOException If the destination cannot be written to.
+     */
+    void write(final Appendable out, final JSONTextCache owner) throws JSONException, IOException {
+        addParent(owner);
+        final JSONTextCache cache = this.textCache;
+        if ((cache != null) && cache.isEnabled()) {
+            cache.write(cachedText(cache), out);
+        } else {
+            writeMembers(out, owner);
+        }
+    }
+
+    /**
+     * Record a cache whose text is being made from the text of this JSONObject.
+     * 
+     * @param owner the cache, or null
+     */
+    void addParent(final JSONTextCache owner) {
+        if (owner != null) {
+            textCache().addParent(owner);
+        }
+    }
+
+    /**
+     * @param cache the cache of this JSONObject
+     * @return the text kept in the cache, made if it has none
+     * @throws JSONException If the object contains an invalid number.
+     * @throws IOException Not thrown, the text is made in memory.
+     */
+    private String cachedText(final JSONTextCache cache) throws JSONException, IOException {
+        String text = cache.getText();
+        if (text == null) {
+            final int version = cache.getVersion();
+            final JSONCharOutput out = new JSONCharOutput();
+            try {
+                writeMembers(out, cache);
+                text = out.toString();
+            } finally {
+                out.release();
+            }
+            cache.setText(text, version);
+        }
+        return text;
+    }
 
+    /**
+     * @param out the destination
+     * @param owner the cache whose text is being made, or null
+     * @throws JSONException If the object contains an invalid number.
+     * @throws IOException If the destination cannot be written to.
+     */
+    private void writeMembers(final Appendable out, final JSONTextCache owner) throws JSONException, IOException {
+        boolean first = true;
+        out.append('{');
+        if (getClass() == JSONObject.class) {
+            for (final Map.Entry<Object, Object> entry : this.BACKING_MAP.entrySet()) {
+                writeMember(first, entry.getKey(), entry.getValue(), out, owner);
+                first = false;
+            }
+        } else {
+            // a subclass may override keys()
+            final Iterator<Object> keys = keys();
             while (keys.hasNext()) {
-                if (sb.length() > 1) {
-                    sb.append(',');
-                }
                 final Object key = keys.next();
-                sb.append(quote(key.toString()));
-                sb.append(':');
-                sb.append(valueToString(this.BACKING_MAP.get(key)));
+                writeMember(first, key, this.BACKING_MAP.get(key), out, owner);
+                first = false;
             }
-            sb.append('}');
-            return sb.toString();
-        } catch (final Exception e) {
-            return null;
         }
+        out.append('}');
+    }
+
+    /**
+     * @param first true for the first member written
+     * @param key the key of the member
+     * @param value the value of the member, which may be lazy
+     * @param out the destination
+     * @param owner the cache whose text is being made, or null
+     * @throws JSONException If the value is or contains an invalid number.
+     * @throws IOException If the destination cannot be written to.
+     */
+    private static void writeMember(final boolean first, final Object key, final Object value, final Appendable out, final JSONTextCache owner)
+            throws JSONException, IOException {
+        if (!first) {
+            out.append(',');
+        }
+        quote(key.toString(), out);
+        out.append(':');
+        writeValue(JSONLazyValue.resolve(value), out, owner);
     }
 
     /**
@@ -646,6 +959,96 @@ public class JSONObject {
         return quote(value.toString());
     }
 
+    /**
+     * Write the JSON text of an Object value, as {@link #valueToString(Object)} would make it, except that a JSONObject or JSONArray is written
+     * into the same destination, and an invalid number anywhere inside it is reported rather than replaced, unless the destination is one in which
+     * the text of a nested value can be taken back, see {@link #writeNested(Object, Appendable, JSONTextCache)}.
+     * <p/>
+     * Warning: This method assumes that the data structure is acyclical.
+     * 
+     * @param value The value to be serialized.
+     * @param out the destination
+     * @throws JSONException If the value is or contains an invalid number.
+     * @throws IOException If the destination cannot be written to.
+     */
+    static void writeValue(final Object value, final Appendable out) throws JSONException, IOException {
+        writeValue(value, out, null);
+    }
+
+    /**
+     * Write the JSON text of an Object value.
+     * 
+     * @param value The value to be serialized.
+     * @param out the destination
+     * @param owner the cache whose text is being made, which is recorded in each JSONObject and JSONArray written, or null
+     * @throws JSONException If the value is or contains an invalid number.
+     * @throws IOException If the destination cannot be written to.
+     */
+    static void writeValue(final Object value, final Appendable out, final JSONTextCache owner) throws JSONException, IOException {
+        if ((value == null) || value.equals(NULL_OBJECT)) {
+            out.append("null");
+        } else if (value instanceof Number) {
+            testValidity(value);
+            JSONNumbers.write((Number) value, out);
+        } else if (value instanceof Boolean) {
+            out.append(value.toString());
+        } else if ((value instanceof JSONObject) || (value instanceof JSONArray)) {
+            writeNested(value, out, owner);
+        } else if (value.getClass().isArray()) {
+            writeNested(new JSONArray(value), out, owner);
+        } else {
+            quote(value.toString(), out);
+        }
+    }
+
+    /**
+     * Write a JSONObject or JSONArray with the text its toString() gives it, which is how the text of the value holding it used to be made.
+     * <p/>
+     * A subclass, which may override toString(), keys() or join(String), is written with its own toString(). A cache whose text includes it is
+     * then dropped when the subclass itself is changed, but not when a value nested in it is.
+     * <p/>
+     * toString() makes a JSONObject that contains an invalid number into null, and such a JSONArray into []. When the destination is a
+     * JSONCharOutput, as it is for toString() and join(String), the text written for the value is taken back and replaced in the same way. Any
+     * other destination, such as that of {@link #writeTo(Appendable)} or a {@link JSONWriter}, may already have passed the text on, so the
+     * invalid number is reported.
+     * 
+     * @param value a JSONObject or JSONArray
+     * @param out the destination
+     * @param owner the cache whose text is being made, or null
+     * @throws JSONException If the value contains an invalid number and cannot be replaced.
+     * @throws IOException If the destination cannot be written to.
+     */
+    private static void writeNested(final Object value, final Appendable out, final JSONTextCache owner) throws JSONException, IOException {
+        final boolean object = value instanceof JSONObject;
+        if ((value.getClass() != JSONObject.class) && (value.getClass() != JSONArray.class)) {
+            if (object) {
+                ((JSONObject) value).addParent(owner);
+            } else {
+                ((JSONArray) value).addParent(owner);
+            }
+            out.append(value.toString());
+        } else if (out instanceof JSONCharOutput) {
+            final JSONCharOutput chars = (JSONCharOutput) out;
+            final int mark = chars.length();
+            try {
+                writeContainer(value, out, owner);
+            } catch (final JSONException e) {
+                chars.setLength(mark);
+                out.append(object ? "null" : "[]");
+            }
+        } else {
+            writeContainer(value, out, owner);
+        }
+    }
+
+    private static void writeContainer(final Object value, final Appendable out, final JSONTextCache owner) throws JSONException, IOException {
+        if (value instanceof JSONObject) {
+            ((JSONObject) value).write(out, owner);
+        } else {
+            ((JSONArray) value).write(out, owner);
+        }
+    }
+
     /**
      * Wrap an object, if necessary. If the object is null, return the NULL object. If it is an array or collection, wrap it in a JSONArray. If it is
      * a map, wrap it in a JSONObject. If it is a standard property (Double, String, et al) then it is already wrapped. If the wrapping fails, then
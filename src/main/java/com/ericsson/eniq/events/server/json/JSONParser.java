@@ -0,0 +1,676 @@
+package com.ericsson.eniq.events.server.json;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Entry point for parsing JSON text from sources other than a String.
+ * <p/>
+ * Byte sources are expected to hold UTF-8 and are read directly by a tokenizer that decodes as it goes, so a payload read from a file or an HTTP
+ * body does not have to be turned into a String, or copied, before it is parsed. Files are memory mapped, so even very large documents are read
+ * straight from the OS page cache:
+ * 
+ * <pre>
+ * final JSONObject uiMetaData = new JSONParser().parseObject(inputStream);
+ * </pre>
+ * 
+ * The parsers accept the same lenient forms as the {@link JSONObject} and {@link JSONArray} String constructors, unless set to be strict, and
+ * report syntax errors in the same way. A JSONParser holds only its settings, and once configured may be shared between threads.
+ * <p/>
+ * A parser for untrusted input can be given limits on the size and shape of the text, so that an oversized or malicious payload is rejected as
+ * soon as it goes over one, before it can use up the stack or the heap:
+ * 
+ * <pre>
+ * final JSONParser parser = new JSONParser().setMaxInputLength(1 &lt;&lt; 20).setMaxDepth(32).setMaxStringLength(8192);
+ * </pre>
+ * 
+ * By default there are no limits.
+ * <p/>
+ * When only a few values are needed out of a large document, a parser can be given the paths to them, and builds only those:
+ * 
+ * <pre>
+ * final JSONObject grids = new JSONParser().setProjection("grids[*].id", "grids[*].columns[*].header").parseObject(inputStream);
+ * </pre>
+ */
+public class JSONParser {
+
+    /**
+     * Number of bytes read from an InputStream at a time.
+     */
+    private static final int STREAM_BUFFER_SIZE = 8192;
+
+    /**
+     * Maximum number of bytes of a file mapped at a time.
+     */
+    private static final long MAPPED_SEGMENT_SIZE = 1L << 30;
+
+    private boolean lazy;
+
+    private boolean strict;
+
+    private ForkJoinPool pool;
+
+    private JSONProjection projection;
+
+    private long maxInputLength = Long.MAX_VALUE;
+
+    private int maxDepth = Integer.MAX_VALUE;
+
+    private int maxStringLength = Integer.MAX_VALUE;
+
+    private int maxObjectMembers = Integer.MAX_VALUE;
+
+    private int maxArrayElements = Integer.MAX_VALUE;
+
+    /**
+     * Default ctor, construct a parser with the default settings
+     */
+    public JSONParser() {
+    }
+
+    /**
+     * Set whether nested objects and arrays are parsed lazily. In a lazily parsed document every nested object and array is checked as it is read,
+     * and syntax errors and duplicated keys are reported exactly as they would be otherwise, but it is only turned into a JSONObject or JSONArray
+     * the first time it is accessed through <code>get</code>, <code>opt</code>, <code>remove</code> or <code>toString</code>. The document keeps
+     * its source text or buffer reachable until then, so the source must not be modified. Reading a value does not modify the document, so a
+     * lazily parsed document can be read from several threads without locking, as one parsed in full can.
+     * <p/>
+     * Streams, and files too big to be mapped in one segment, cannot be read twice and are always parsed eagerly.
+     * 
+     * @param lazy true to parse lazily
+     * @return this.
+     */
+    public JSONParser setLazy(final boolean lazy) {
+        this.lazy = lazy;
+        return this;
+    }
+
+    /**
+     * Set whether only standard JSON (RFC 8259) is accepted. A strict parser rejects all of the lenient forms: strings in single quotes or without
+     * quotes, keys separated from their values by '=' or '=>', pairs or elements separated by ';', arrays in parentheses, elided elements, a
+     * separator after the last member or element, and numbers in any form other than the standard one, such as hexadecimal. In exchange the text is
+     * read by a state machine that has no branches for those forms, and numbers and the words true, false and null are scanned directly instead of
+     * being collected as unquoted text and then converted, so machine generated JSON parses faster.
+     * <p/>
+     * Only space, tab, line feed and carriage return are whitespace in a strict text, and nothing but whitespace may follow the value, so a stream
+     * is read to its end.
+     * <p/>
+     * A standard text gives exactly the same result either way.
+     * 
+     * @param strict true to accept only standard JSON
+     * @return this.
+     */
+    public JSONParser setStrict(final boolean strict) {
+        this.strict = strict;
+        return this;
+    }
+
+    /**
+     * Set a pool of threads to parse arrays on. A JSONArray parsed from anything but a stream is first split into its elements by a quick scan,
+     * and the elements are then parsed in parallel and put together in their original order. This suits large arrays of rows, such as exported
+     * result sets. The result, and any syntax error, is exactly that of a sequential parse; when the text has an error it is parsed again on the
+     * calling thread to report the first one.
+     * <p/>
+     * The elements of a parallel parse are always parsed eagerly, and files too big to be mapped in one segment are parsed sequentially. The pool
+     * is also used by {@link JSONLinesReader}s created by this parser.
+     * 
+     * @param pool the threads to use, or null to parse on the calling thread
+     * @return this.
+     */
+    public JSONParser setParallel(final ForkJoinPool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    /**
+     * Set the paths of the values to build. The JSONObjects and JSONArrays returned by this parser then hold only the members and elements on the
+     * way to those values, and everything else is skipped over by a scan that checks its syntax, but builds nothing and does not check its objects
+     * for duplicated keys. So a projection costs little more than finding the ends of the values it leaves out.
+     * <p/>
+     * A path is a list of member names separated by '.', each of which may be followed by <code>[*]</code> to go into every element of an array;
+     * <code>grids[*].columns[*].header</code> selects the header of every column of every grid, and a path starting with <code>[*]</code> goes into
+     * the elements of a top level array. A value that a path only goes through is left out unless it is an object or an array, as appropriate, and
+     * elements that are left out are removed from their array rather than left as gaps. Member names holding '.' or '[' cannot be selected.
+     * <p/>
+     * Arrays are not parsed in parallel under a projection. Handlers and readers are given the whole text.
+     * 
+     * @param paths the paths to build, or none to build everything
+     * @return this.
+     * @throws IllegalArgumentException if a path is not valid
+     */
+    public JSONParser setProjection(final String... paths) {
+        this.projection = paths.length == 0 ? null : JSONProjection.compile(paths);
+        return this;
+    }
+
+    /**
+     * Set the maximum length of a text: the number of characters of a String, or the number of bytes of a byte source, including any byte order
+     * mark. A stream is only read as far as the first buffer beyond the limit. A {@link JSONLinesReader} applies the limit to each line, including
+     * its line break.
+     * 
+     * @param maxInputLength the limit, at least 0
+     * @return this.
+     */
+    public JSONParser setMaxInputLength(final long maxInputLength) {
+        this.maxInputLength = checkLimit("maxInputLength", maxInputLength);
+        return this;
+    }
+
+    /**
+     * Set the maximum number of objects and arrays that can be nested inside each other. A top level object with an array inside it is nested two
+     * deep.
+     * 
+     * @param maxDepth the limit, at least 0
+     * @return this.
+     */
+    public JSONParser setMaxDepth(final int maxDepth) {
+        this.maxDepth = (int) checkLimit("maxDepth", maxDepth);
+        return this;
+    }
+
+    /**
+     * Set the maximum number of characters in a string or a key, not counting its quotes, or in an unquoted value, including a number.
+     * 
+     * @param maxStringLength the limit, at least 0
+     * @return this.
+     */
+    public JSONParser setMaxStringLength(final int maxStringLength) {
+        this.maxStringLength = (int) checkLimit("maxStringLength", maxStringLength);
+        return this;
+    }
+
+    /**
+     * Set the maximum number of members of an object.
+     * 
+     * @param maxObjectMembers the limit, at least 0
+     * @return this.
+     */
+    public JSONParser setMaxObjectMembers(final int maxObjectMembers) {
+        this.maxObjectMembers = (int) checkLimit("maxObjectMembers", maxObjectMembers);
+        return this;
+    }
+
+    /**
+     * Set the maximum number of elements of an array, counting elided elements.
+     * 
+     * @param maxArrayElements the limit, at least 0
+     * @return this.
+     */
+    public JSONParser setMaxArrayElements(final int maxArrayElements) {
+        this.maxArrayElements = (int) checkLimit("maxArrayElements", maxArrayElements);
+        return this;
+    }
+
+    private static long checkLimit(final String name, final long limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException(name + " " + limit);
+        }
+        return limit;
+    }
+
+    /**
+     * @return the maximum length of a text, in characters or bytes
+     */
+    long getMaxInputLength() {
+        return this.maxInputLength;
+    }
+
+    /**
+     * Parse a JSONObject from a String.
+     * 
+     * @param source A string beginning with <code>{</code>&nbsp;<small>(left brace)</small> and ending with <code>}</code> &nbsp;<small>(right
+     *            brace)</small>.
+     * @return the JSONObject
+     * @throws JSONException If there is a syntax error in the source or a duplicated key.
+     */
+    public JSONObject parseObject(final String source) throws JSONException {
+        return parseObject(tokenizer(source));
+    }
+
+    /**
+     * Parse a JSONObject from a region of a byte array holding UTF-8 text.
+     * 
+     * @param source UTF-8 encoded JSON text
+     * @param offset index of the first byte of the text
+     * @param length number of bytes in the text
+     * @return the JSONObject
+     * @throws JSONException If there is a syntax error in the source or a duplicated key.
+     */
+    public JSONObject parseObject(final byte[] source, final int offset, final int length) throws JSONException {
+        return parseObject(tokenizer(ByteBuffer.wrap(source, offset, length)));
+    }
+
+    /**
+     * Parse a JSONObject from the remaining bytes of a buffer holding UTF-8 text. The buffer's position is not changed.
+     * 
+     * @param source UTF-8 encoded JSON text
+     * @return the JSONObject
+     * @throws JSONException If there is a syntax error in the source or a duplicated key.
+     */
+    public JSONObject parseObject(final ByteBuffer source) throws JSONException {
+        return parseObject(tokenizer(source));
+    }
+
+    /**
+     * Parse a JSONObject from a stream of UTF-8 text. Only the bytes needed to complete the object are consumed, up to the size of the read buffer,
+     * unless the parser is strict. The stream is not closed.
+     * 
+     * @param source UTF-8 encoded JSON text
+     * @return the JSONObject
+     * @throws JSONException If there is a syntax error in the source or a duplicated key, or if the stream cannot be read.
+     */
+    public JSONObject parseObject(final InputStream source) throws JSONException {
+        return parseObject(tokenizer(source));
+    }
+
+    /**
+     * Parse a JSONObject from a file holding UTF-8 text. The file is memory mapped rather than read onto the heap, and may be larger than 2 GB.
+     * 
+     * @param source UTF-8 encoded JSON file
+     * @return the JSONObject
+     * @throws JSONException If there is a syntax error in the source or a duplicated key, or if the file cannot be read.
+     */
+    public JSONObject parseObject(final File source) throws JSONException {
+        final FileChannel channel = open(source);
+        try {
+            return parseObject(tokenizer(channel));
+        } finally {
+            close(channel);
+        }
+    }
+
+    /**
+     * Parse a JSONArray from a String.
+     * 
+     * @param source A string that begins with <code>[</code>&nbsp;<small>(left bracket)</small> and ends with <code>]</code>&nbsp;<small>(right
+     *            bracket)</small>.
+     * @return the JSONArray
+     * @throws JSONException If there is a syntax error.
+     */
+    public JSONArray parseArray(final String source) throws JSONException {
+        final JSONArray result = (this.pool == null) || (this.projection != null) ? null : parseArrayInParallel(tokenizer(source));
+        return result != null ? result : parseArray(tokenizer(source));
+    }
+
+    /**
+     * Parse a JSONArray from a region of a byte array holding UTF-8 text.
+     * 
+     * @param source UTF-8 encoded JSON text
+     * @param offset index of the first byte of the text
+     * @param length number of bytes in the text
+     * @return the JSONArray
+     * @throws JSONException If there is a syntax error.
+     */
+    public JSONArray parseArray(final byte[] source, final int offset, final int length) throws JSONException {
+        return parseArray(ByteBuffer.wrap(source, offset, length));
+    }
+
+    /**
+     * Parse a JSONArray from the remaining bytes of a buffer holding UTF-8 text. The buffer's position is not changed.
+     * 
+     * @param source UTF-8 encoded JSON text
+     * @return the JSONArray
+     * @throws JSONException If there is a syntax error.
+     */
+    public JSONArray parseArray(final ByteBuffer source) throws JSONException {
+        final JSONArray result = (this.pool == null) || (this.projection != null) ? null : parseArrayInParallel(tokenizer(source));
+        return result != null ? result : parseArray(tokenizer(source));
+    }
+
+    /**
+     * Parse a JSONArray from a stream of UTF-8 text. The stream is not closed.
+     * 
+     * @param source UTF-8 encoded JSON text
+     * @return the JSONArray
+     * @throws JSONException If there is a syntax error, or if the stream cannot be read.
+     */
+    public JSONArray parseArray(final InputStream source) throws JSONException {
+        return parseArray(tokenizer(source));
+    }
+
+    /**
+     * Parse a JSONArray from a file holding UTF-8 text. The file is memory mapped rather than read onto the heap, and may be larger than 2 GB.
+     * 
+     * @param source UTF-8 encoded JSON file
+     * @return the JSONArray
+     * @throws JSONException If there is a syntax error, or if the file cannot be read.
+     */
+    public JSONArray parseArray(final File source) throws JSONException {
+        final FileChannel channel = open(source);
+        try {
+            final JSONArray result = (this.pool == null) || (this.projection != null) ? null : parseArrayInParallel(tokenizer(channel));
+            return result != null ? result : parseArray(tokenizer(channel));
+        } finally {
+            close(channel);
+        }
+    }
+
+    /**
+     * Parse a String, reporting its structure to a handler instead of building a JSONObject or JSONArray tree. The text must be an object or an
+     * array, as for the JSONObject and JSONArray constructors and the pull reader.
+     * 
+     * @param source JSON text
+     * @param handler receiver of the parse events
+     * @throws JSONException If there is a syntax error, or if the handler abandons the parse.
+     */
+    public void parse(final String source, final JSONHandler handler) throws JSONException {
+        parse(tokenizer(source), handler);
+    }
+
+    /**
+     * Parse a region of a byte array holding UTF-8 text, reporting its structure to a handler instead of building a JSONObject or JSONArray tree.
+     * 
+     * @param source UTF-8 encoded JSON text
+     * @param offset index of the first byte of the text
+     * @param length number of bytes in the text
+     * @param handler receiver of the parse events
+     * @throws JSONException If there is a syntax error, or if the handler abandons the parse.
+     */
+    public void parse(final byte[] source, final int offset, final int length, final JSONHandler handler) throws JSONException {
+        parse(tokenizer(ByteBuffer.wrap(source, offset, length)), handler);
+    }
+
+    /**
+     * Parse the remaining bytes of a buffer holding UTF-8 text, reporting its structure to a handler instead of building a JSONObject or JSONArray
+     * tree. The buffer's position is not changed.
+     * 
+     * @param source UTF-8 encoded JSON text
+     * @param handler receiver of the parse events
+     * @throws JSONException If there is a syntax error, or if the handler abandons the parse.
+     */
+    public void parse(final ByteBuffer source, final JSONHandler handler) throws JSONException {
+        parse(tokenizer(source), handler);
+    }
+
+    /**
+     * Parse a stream of UTF-8 text, reporting its structure to a handler instead of building a JSONObject or JSONArray tree. The stream is not
+     * closed.
+     * 
+     * @param source UTF-8 encoded JSON text
+     * @param handler receiver of the parse events
+     * @throws JSONException If there is a syntax error, or if the stream cannot be read, or if the handler abandons the parse.
+     */
+    public void parse(final InputStream source, final JSONHandler handler) throws JSONException {
+        parse(tokenizer(source), handler);
+    }
+
+    /**
+     * Parse a file holding UTF-8 text, reporting its structure to a handler instead of building a JSONObject or JSONArray tree. The file is memory
+     * mapped rather than read onto the heap.
+     * 
+     * @param source UTF-8 encoded JSON file
+     * @param handler receiver of the parse events
+     * @throws JSONException If there is a syntax error, or if the file cannot be read, or if the handler abandons the parse.
+     */
+    public void parse(final File source, final JSONHandler handler) throws JSONException {
+        final FileChannel channel = open(source);
+        try {
+            parse(tokenizer(channel), handler);
+        } finally {
+            close(channel);
+        }
+    }
+
+    /**
+     * Check that a String holds a well formed JSON text, without building anything from it. The grammar, the syntax errors and the limits are
+     * those of the parse methods, and objects are checked for duplicated keys as a JSONObject checks them, but the value is only scanned: no
+     * JSONObjects, JSONArrays, maps or Strings are created, except for keys that are not in quotes. The text must be an object or an array, as for
+     * the JSONObject and JSONArray constructors. Unlike the parse methods, which ignore anything after the end of the value, nothing but whitespace may follow it up to the end of the input, so a text that
+     * passes can be forwarded whole. An embedded NUL, which ends the text for the parse methods, is not the end of the input here.
+     * 
+     * @param source JSON text
+     * @throws JSONException If there is a syntax error in the source or a duplicated key.
+     */
+    public void validate(final String source) throws JSONException {
+        validate(tokenizer(source));
+    }
+
+    /**
+     * Check that a region of a byte array holds a well formed JSON value in UTF-8, without building anything from it.
+     * 
+     * @param source UTF-8 encoded JSON text
+     * @param offset index of the first byte of the text
+     * @param length number of bytes in the text
+     * @throws JSONException If there is a syntax error in the source or a duplicated key.
+     * @see #validate(String)
+     */
+    public void validate(final byte[] source, final int offset, final int length) throws JSONException {
+        validate(tokenizer(ByteBuffer.wrap(source, offset, length)));
+    }
+
+    /**
+     * Check that the remaining bytes of a buffer hold a well formed JSON value in UTF-8, without building anything from it. The buffer's position
+     * is not changed, so the text can be forwarded as it is.
+     * 
+     * @param source UTF-8 encoded JSON text
+     * @throws JSONException If there is a syntax error in the source or a duplicated key.
+     * @see #validate(String)
+     */
+    public void validate(final ByteBuffer source) throws JSONException {
+        validate(tokenizer(source));
+    }
+
+    /**
+     * Check that a stream holds a well formed JSON value in UTF-8, without building anything from it. The stream is not closed.
+     * 
+     * @param source UTF-8 encoded JSON text
+     * @throws JSONException If there is a syntax error in the source or a duplicated key, or if the stream cannot be read.
+     * @see #validate(String)
+     */
+    public void validate(final InputStream source) throws JSONException {
+        validate(tokenizer(source));
+    }
+
+    /**
+     * Check that a file holds a well formed JSON value in UTF-8, without building anything from it. The file is memory mapped rather than read onto
+     * the heap.
+     * 
+     * @param source UTF-8 encoded JSON file
+     * @throws JSONException If there is a syntax error in the source or a duplicated key, or if the file cannot be read.
+     * @see #validate(String)
+     */
+    public void validate(final File source) throws JSONException {
+        final FileChannel channel = open(source);
+        try {
+            validate(tokenizer(channel));
+        } finally {
+            close(channel);
+        }
+    }
+
+    /**
+     * Create a pull parser reading a String.
+     * 
+     * @param source JSON text
+     * @return a reader positioned before the first token
+     * @throws JSONException if the text is longer than the limit
+     */
+    public JSONReader createReader(final String source) throws JSONException {
+        return new JSONReader(tokenizer(source));
+    }
+
+    /**
+     * Create a pull parser reading a region of a byte array holding UTF-8 text.
+     * 
+     * @param source UTF-8 encoded JSON text
+     * @param offset index of the first byte of the text
+     * @param length number of bytes in the text
+     * @return a reader positioned before the first token
+     * @throws JSONException if the text is longer than the limit
+     */
+    public JSONReader createReader(final byte[] source, final int offset, final int length) throws JSONException {
+        return new JSONReader(tokenizer(ByteBuffer.wrap(source, offset, length)));
+    }
+
+    /**
+     * Create a pull parser reading the remaining bytes of a buffer holding UTF-8 text. The buffer's position is not changed.
+     * 
+     * @param source UTF-8 encoded JSON text
+     * @return a reader positioned before the first token
+     * @throws JSONException if the text is longer than the limit
+     */
+    public JSONReader createReader(final ByteBuffer source) throws JSONException {
+        return new JSONReader(tokenizer(source));
+    }
+
+    /**
+     * Create a pull parser reading a stream of UTF-8 text through a fixed size buffer, so that memory use does not depend on the size of the text.
+     * The stream is not closed.
+     * 
+     * @param source UTF-8 encoded JSON text
+     * @return a reader positioned before the first token
+     * @throws JSONException if the stream cannot be read
+     */
+    public JSONReader createReader(final InputStream source) throws JSONException {
+        return new JSONReader(tokenizer(source));
+    }
+
+    /**
+     * Create a receiver for UTF-8 text that arrives in chunks, which never blocks waiting for the rest of the text, and parses it with this parser
+     * once it is complete.
+     * 
+     * @return a feeder expecting the first chunk
+     */
+    public JSONFeeder createFeeder() {
+        return new JSONFeeder(this);
+    }
+
+    /**
+     * Create a reader for a stream of JSON Lines, one JSONObject per line, which parses the records on this parser's pool.
+     * 
+     * @param source UTF-8 encoded JSON Lines
+     * @return a reader at the start of the stream
+     * @see #setParallel(ForkJoinPool)
+     */
+    public JSONLinesReader createLinesReader(final InputStream source) {
+        return new JSONLinesReader(this, this.pool, this.pool == null ? 1 : this.pool.getParallelism(), source);
+    }
+
+    /**
+     * Split a JSONArray at its elements, and parse the elements on the pool.
+     * 
+     * @param tokenizer tokenizer at the start of the text
+     * @return the JSONArray, or null if the text has an error, in which case it has to be parsed again to report the error as usual
+     */
+    private JSONArray parseArrayInParallel(final JSONTokenizer tokenizer) {
+        tokenizer.setSplitting();
+        try {
+            final JSONArray array = new JSONArray(tokenizer);
+            checkEnd(tokenizer);
+            return JSONElementParser.parseAll(this.pool, array) ? array : null;
+        } catch (final Exception exception) {
+            // parsed again by the caller
+            return null;
+        }
+    }
+
+    private JSONObject parseObject(final JSONTokenizer tokenizer) throws JSONException {
+        final JSONObject result = new JSONObject(tokenizer);
+        checkEnd(tokenizer);
+        return result;
+    }
+
+    private JSONArray parseArray(final JSONTokenizer tokenizer) throws JSONException {
+        final JSONArray result = new JSONArray(tokenizer);
+        checkEnd(tokenizer);
+        return result;
+    }
+
+    private void parse(final JSONTokenizer tokenizer, final JSONHandler handler) throws JSONException {
+        checkStart(tokenizer);
+        tokenizer.nextValue(handler);
+        checkEnd(tokenizer);
+    }
+
+    /**
+     * Scan a text that must be an object or an array, and nothing after it.
+     * 
+     * @param tokenizer tokenizer at the start of the text
+     * @throws JSONException If there is a syntax error or a duplicated key.
+     */
+    private void validate(final JSONTokenizer tokenizer) throws JSONException {
+        checkStart(tokenizer);
+        tokenizer.skipValue();
+        tokenizer.checkEnd();
+    }
+
+    /**
+     * Check that a text starts with an object or an array, as the JSONObject and JSONArray constructors require, leaving the tokenizer at its
+     * start.
+     * 
+     * @param tokenizer tokenizer at the start of the text
+     * @throws JSONException If the text starts with anything else.
+     */
+    private void checkStart(final JSONTokenizer tokenizer) throws JSONException {
+        final char c = tokenizer.nextClean();
+        if ((c != '{') && (c != '[') && ((c != '(') || this.strict)) {
+            throw tokenizer.syntaxError("A JSON text must begin with '{' or '['");
+        }
+        tokenizer.back();
+    }
+
+    /**
+     * A strict text must end with its value, where the lenient grammar ignores anything that follows it.
+     * 
+     * @param tokenizer tokenizer after the value
+     * @throws JSONException If the parser is strict and there is more text.
+     */
+    private void checkEnd(final JSONTokenizer tokenizer) throws JSONException {
+        if (this.strict) {
+            tokenizer.checkEnd();
+        }
+    }
+
+    private static FileChannel open(final File source) throws JSONException {
+        try {
+            return new FileInputStream(source).getChannel();
+        } catch (final IOException exception) {
+            throw new JSONException(exception);
+        }
+    }
+
+    private static void close(final FileChannel channel) throws JSONException {
+        try {
+            channel.close();
+        } catch (final IOException exception) {
+            throw new JSONException(exception);
+        }
+    }
+
+    private JSONTokenizer tokenizer(final String source) throws JSONException {
+        return configure(new JSONTokenizer(source));
+    }
+
+    private JSONTokenizer tokenizer(final ByteBuffer source) throws JSONException {
+        return configure(new JSONByteTokenizer(source));
+    }
+
+    private JSONTokenizer tokenizer(final InputStream source) throws JSONException {
+        return configure(new JSONByteTokenizer(source, STREAM_BUFFER_SIZE));
+    }
+
+    private JSONTokenizer tokenizer(final FileChannel source) throws JSONException {
+        return configure(new JSONMappedTokenizer(source, MAPPED_SEGMENT_SIZE));
+    }
+
+    /**
+     * Apply this parser's settings to a new tokenizer.
+     * 
+     * @param tokenizer the tokenizer
+     * @return the tokenizer
+     * @throws JSONException if the input is longer than the limit
+     */
+    private JSONTokenizer configure(final JSONTokenizer tokenizer) throws JSONException {
+        tokenizer.setLazy(this.lazy);
+        tokenizer.setStrict(this.strict);
+        tokenizer.setProjection(this.projection);
+        tokenizer.setMaxInputLength(this.maxInputLength);
+        tokenizer.setLimits(this.maxDepth, this.maxStringLength, this.maxObjectMembers, this.maxArrayElements);
+        return tokenizer;
+    }
+}
\ No newline at end of file
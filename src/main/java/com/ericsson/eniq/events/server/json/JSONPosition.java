@@ -0,0 +1,73 @@
+package com.ericsson.eniq.events.server.json;
+
+/**
+ * Package scope internal class
+ * 
+ * The line and character reached in a text, worked out by going over its characters from the start. Tokenizers only count the characters they
+ * consume, and build one of these from the input when a syntax error has to report where it happened.
+ * <p/>
+ * A '\n', a '\r' or a "\r\n" pair each end a line.
+ * 
+ * @see JSONTokenizer#syntaxError(String)
+ */
+final class JSONPosition {
+
+    private long line = 1;
+
+    private long character = 1;
+
+    private char previous;
+
+    /**
+     * Number of characters gone over.
+     */
+    private long count;
+
+    /**
+     * Make a copy, to carry on from where this position has got to without changing it.
+     * 
+     * @return the copy
+     */
+    JSONPosition copy() {
+        final JSONPosition copy = new JSONPosition();
+        copy.line = this.line;
+        copy.character = this.character;
+        copy.previous = this.previous;
+        copy.count = this.count;
+        return copy;
+    }
+
+    /**
+     * Go over one character.
+     * 
+     * @param c the character
+     */
+    void advance(final char c) {
+        this.count++;
+        if (this.previous == '\r') {
+            this.line++;
+            this.character = c == '\n' ? 0 : 1;
+        } else if (c == '\n') {
+            this.line++;
+            this.character = 0;
+        } else {
+            this.character++;
+        }
+        this.previous = c;
+    }
+
+    long getLine() {
+        return this.line;
+    }
+
+    long getCharacter() {
+        return this.character;
+    }
+
+    /**
+     * @return the number of characters gone over
+     */
+    long getCount() {
+        return this.count;
+    }
+}
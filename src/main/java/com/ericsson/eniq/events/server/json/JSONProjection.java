@@ -0,0 +1,106 @@
+package com.ericsson.eniq.events.server.json;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Package scope internal class
+ * 
+ * The parts of a document to build, held as a tree of the paths that lead to them. Each node stands for the values reached by a path: the members
+ * of an object it goes on to, the elements of an array it goes on to, or, at the end of a path, the whole of the value.
+ * <p/>
+ * A path is a list of member names separated by '.', each of which may be followed by any number of <code>[*]</code> to go into every element of
+ * an array, so <code>grids[*].columns[*].header</code> reaches the header of every column of every grid. A path starting with <code>[*]</code> goes
+ * into the elements of a top level array. Member names cannot hold '.' or '['.
+ * 
+ * @see JSONParser#setProjection(String...)
+ */
+final class JSONProjection {
+
+    private final Map<String, JSONProjection> members = new HashMap<String, JSONProjection>();
+
+    private JSONProjection elements;
+
+    /**
+     * Set if a path ends here, so the value is built in full.
+     */
+    private boolean whole;
+
+    /**
+     * Build the tree of a set of paths.
+     * 
+     * @param paths the paths
+     * @return the root of the tree
+     * @throws IllegalArgumentException if a path is not valid
+     */
+    static JSONProjection compile(final String... paths) {
+        final JSONProjection root = new JSONProjection();
+        for (final String path : paths) {
+            root.add(path);
+        }
+        return root;
+    }
+
+    private void add(final String path) {
+        final int length = path.length();
+        if (length == 0) {
+            throw new IllegalArgumentException("Invalid path \"" + path + "\"");
+        }
+        JSONProjection node = this;
+        int i = 0;
+        while (i < length) {
+            if (path.startsWith("[*]", i)) {
+                if (node.elements == null) {
+                    node.elements = new JSONProjection();
+                }
+                node = node.elements;
+                i += 3;
+            } else {
+                if (i > 0) {
+                    if (path.charAt(i) != '.') {
+                        throw new IllegalArgumentException("Invalid path \"" + path + "\"");
+                    }
+                    i++;
+                }
+                int end = i;
+                while ((end < length) && (path.charAt(end) != '.') && (path.charAt(end) != '[')) {
+                    end++;
+                }
+                if (end == i) {
+                    throw new IllegalArgumentException("Invalid path \"" + path + "\"");
+                }
+                final String key = path.substring(i, end);
+                JSONProjection member = node.members.get(key);
+                if (member == null) {
+                    member = new JSONProjection();
+                    node.members.put(key, member);
+                }
+                node = member;
+                i = end;
+            }
+        }
+        node.whole = true;
+    }
+
+    /**
+     * @param key name of a member of the object this node stands for
+     * @return the node for the member, or null if no path goes on to it
+     */
+    JSONProjection member(final String key) {
+        return this.members.get(key);
+    }
+
+    /**
+     * @return the node for the elements of the array this node stands for, or null if no path goes on to them
+     */
+    JSONProjection elements() {
+        return this.elements;
+    }
+
+    /**
+     * @return true if a path ends here, so the value is built in full
+     */
+    boolean isWhole() {
+        return this.whole;
+    }
+}
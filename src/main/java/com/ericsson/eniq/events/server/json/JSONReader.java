@@ -0,0 +1,505 @@
+package com.ericsson.eniq.events.server.json;
+
+import java.util.Arrays;
+
+/**
+ * A pull parser that reads a JSON text one token at a time, so that large documents can be processed without building the whole JSONObject or
+ * JSONArray tree. For example, the rows of a large grid result can be handled one at a time, in constant memory:
+ * 
+ * <pre>
+ * final JSONReader reader = new JSONParser().createReader(inputStream);
+ * reader.nextToken(); // START_ARRAY
+ * while (reader.nextToken() == JSONToken.START_OBJECT) {
+ *     final JSONObject row = (JSONObject) reader.readValue();
+ *     ...
+ * }
+ * </pre>
+ * 
+ * The reader follows exactly the grammar of the JSONObject and JSONArray constructors, including their lenient forms unless the parser is strict,
+ * and reports syntax errors with the same messages. The text must be an object or an array, and a duplicated key is reported once the value of
+ * the second member with that name has been read, where the constructors report it.
+ * 
+ * @see JSONToken
+ */
+public class JSONReader {
+
+    /**
+     * Expecting a value: the top level value, an object member's value or an array element.
+     */
+    private static final int VALUE = 0;
+
+    /**
+     * Expecting an object member's name, or the end of the object.
+     */
+    private static final int OBJECT_KEY = 1;
+
+    /**
+     * Expecting the separator after an object member, or the end of the object.
+     */
+    private static final int OBJECT_NEXT = 2;
+
+    /**
+     * Expecting the first element of an array, or the end of an empty array.
+     */
+    private static final int ARRAY_FIRST = 3;
+
+    /**
+     * Expecting an array element, which may be elided.
+     */
+    private static final int ARRAY_ELEMENT = 4;
+
+    /**
+     * Expecting the separator after an array element, or the end of the array.
+     */
+    private static final int ARRAY_NEXT = 5;
+
+    /**
+     * The top level value has been read.
+     */
+    private static final int DONE = 6;
+
+    private static final char OBJECT_CLOSER = '}';
+
+    private final JSONTokenizer tokenizer;
+
+    private int state;
+
+    private int depth;
+
+    /**
+     * For each open container, the character that closes it: '}' for an object, or ']' or ')' for an array.
+     */
+    private char[] closers = new char[16];
+
+    /**
+     * For each open object, the name of the member being read.
+     */
+    private String[] names = new String[16];
+
+    /**
+     * For each open container, the number of members or elements read so far.
+     */
+    private int[] counts = new int[16];
+
+    /**
+     * For each open object, the mark of its keys in the key set.
+     */
+    private int[] marks = new int[16];
+
+    /**
+     * Keys of the open objects, for finding duplicates.
+     */
+    private final JSONKeySet keys = new JSONKeySet();
+
+    private JSONToken token;
+
+    private Object value;
+
+    private final boolean strict;
+
+    /**
+     * Construct a reader taking its tokens from a tokenizer.
+     * 
+     * @param tokenizer source of the JSON text
+     */
+    JSONReader(final JSONTokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+        this.state = VALUE;
+        this.strict = tokenizer.isStrict();
+    }
+
+    /**
+     * Advance to the next token.
+     * 
+     * @return the next token, or null once the top level value has been completely read.
+     * @throws JSONException If there is a syntax error.
+     */
+    public JSONToken nextToken() throws JSONException {
+        this.value = null;
+        switch (this.state) {
+            case VALUE:
+                this.token = readValueToken();
+                break;
+            case OBJECT_KEY:
+                this.token = readObjectKey();
+                break;
+            case OBJECT_NEXT:
+                this.token = readObjectNext();
+                break;
+            case ARRAY_FIRST:
+                this.token = readArrayFirst();
+                break;
+            case ARRAY_ELEMENT:
+                this.token = readArrayElement();
+                break;
+            case ARRAY_NEXT:
+                this.token = readArrayNext();
+                break;
+            default:
+                this.token = null;
+                break;
+        }
+        return this.token;
+    }
+
+    /**
+     * @return the current token, or null before the first call to {@link #nextToken()} and after the end of the text.
+     */
+    public JSONToken getToken() {
+        return this.token;
+    }
+
+    /**
+     * Get the value of the current token. For FIELD_NAME this is the member name; for the VALUE_ tokens it is the value as it would be held in a
+     * JSONObject or JSONArray: a String, Integer, Long, Double, Boolean or JSONObject.NULL_OBJECT, or null for an elided array element.
+     * 
+     * @return the value, or null for the START_ and END_ tokens
+     */
+    public Object getValue() {
+        return this.value;
+    }
+
+    /**
+     * @return the value of the current token as a string, or null if it has no value
+     */
+    public String getString() {
+        return this.value == null ? null : this.value.toString();
+    }
+
+    /**
+     * @return the name of the object member being read, or null if the current token is not inside an object
+     */
+    public String getFieldName() {
+        return (this.depth > 0) && (this.closers[this.depth - 1] == OBJECT_CLOSER) ? this.names[this.depth - 1] : null;
+    }
+
+    /**
+     * @return the number of objects and arrays enclosing the current position; a START_ token counts the container it starts
+     */
+    public int getDepth() {
+        return this.depth;
+    }
+
+    /**
+     * Read the whole of the value starting at the current token. If the current token is START_OBJECT or START_ARRAY the rest of the container is
+     * parsed into a JSONObject or JSONArray, and the reader moves past its end as if END_OBJECT or END_ARRAY had been returned.
+     * 
+     * @return the JSONObject or JSONArray, or the value of the current token
+     * @throws JSONException If there is a syntax error.
+     */
+    public Object readValue() throws JSONException {
+        Object result;
+        if (this.token == JSONToken.START_OBJECT) {
+            this.tokenizer.back();
+            this.tokenizer.setDepth(this.depth - 1);
+            result = this.tokenizer.createJSONObject();
+            this.token = endContainer(JSONToken.END_OBJECT);
+        } else if (this.token == JSONToken.START_ARRAY) {
+            this.tokenizer.back();
+            this.tokenizer.setDepth(this.depth - 1);
+            result = this.tokenizer.createJSONArray();
+            this.token = endContainer(JSONToken.END_ARRAY);
+        } else {
+            result = this.value;
+        }
+        return result;
+    }
+
+    /**
+     * If the current token is START_OBJECT or START_ARRAY, skip over the rest of the container so that the current token becomes the matching
+     * END_OBJECT or END_ARRAY. Otherwise do nothing.
+     * 
+     * @throws JSONException If there is a syntax error.
+     */
+    public void skipChildren() throws JSONException {
+        if ((this.token == JSONToken.START_OBJECT) || (this.token == JSONToken.START_ARRAY)) {
+            final int target = this.depth - 1;
+            while (this.depth > target) {
+                nextToken();
+            }
+        }
+    }
+
+    private JSONToken readValueToken() throws JSONException {
+        final char c = this.tokenizer.nextClean();
+        if ((this.depth == 0) && (c != '{') && (c != '[') && ((c != '(') || this.strict)) {
+            throw this.tokenizer.syntaxError("A JSONObject text must begin with '{'");
+        }
+        if (this.strict) {
+            return readStrictValueToken(c);
+        }
+        switch (c) {
+            case '"':
+            case '\'':
+                this.value = this.tokenizer.nextString(c);
+                afterValue();
+                return JSONToken.VALUE_STRING;
+            case '{':
+                push(OBJECT_CLOSER);
+                this.state = OBJECT_KEY;
+                return JSONToken.START_OBJECT;
+            case '[':
+                push(']');
+                this.state = ARRAY_FIRST;
+                return JSONToken.START_ARRAY;
+            case '(':
+                push(')');
+                this.state = ARRAY_FIRST;
+                return JSONToken.START_ARRAY;
+            default:
+                this.value = this.tokenizer.nextUnquotedValue(c);
+                afterValue();
+                return scalarToken(this.value);
+        }
+    }
+
+    /**
+     * Read a value of a strict text, which can only be a string in double quotes, an object, an array, a number, true, false or null.
+     */
+    private JSONToken readStrictValueToken(final char c) throws JSONException {
+        switch (c) {
+            case '"':
+                this.value = this.tokenizer.nextString(c);
+                afterValue();
+                return JSONToken.VALUE_STRING;
+            case '{':
+                push(OBJECT_CLOSER);
+                this.state = OBJECT_KEY;
+                return JSONToken.START_OBJECT;
+            case '[':
+                push(']');
+                this.state = ARRAY_FIRST;
+                return JSONToken.START_ARRAY;
+            default:
+                this.value = this.tokenizer.nextStrictLiteral(c);
+                afterValue();
+                return scalarToken(this.value);
+        }
+    }
+
+    private JSONToken readObjectKey() throws JSONException {
+        if (this.strict) {
+            final char c = this.tokenizer.nextClean();
+            return c == '}' ? endContainer(JSONToken.END_OBJECT) : readStrictKey(c);
+        }
+        switch (this.tokenizer.nextClean()) {
+            case 0:
+                throw this.tokenizer.syntaxError("A JSONObject text must end with '}'");
+            case '}':
+                return endContainer(JSONToken.END_OBJECT);
+            default:
+                this.tokenizer.back();
+                this.value = this.tokenizer.nextKey();
+        }
+        this.tokenizer.checkMemberCount(++this.counts[this.depth - 1]);
+
+        /*
+         * The key is followed by ':'. We will also tolerate '=' or '=>'.
+         */
+
+        final char character = this.tokenizer.nextClean();
+        if (character == '=') {
+            if (this.tokenizer.next() != '>') {
+                this.tokenizer.back();
+            }
+        } else if (character != ':') {
+            throw this.tokenizer.syntaxError("Expected a ':' after a key");
+        }
+        startKey((String) this.value);
+        this.state = VALUE;
+        return JSONToken.FIELD_NAME;
+    }
+
+    /**
+     * Read the key of an object member in a strict text, which must be in double quotes and followed by ':'.
+     * 
+     * @param c the character that should open the key, already consumed
+     */
+    private JSONToken readStrictKey(final char c) throws JSONException {
+        if (c != '"') {
+            throw this.tokenizer.strictKeyError(c);
+        }
+        this.value = this.tokenizer.nextKey(c);
+        this.tokenizer.checkMemberCount(++this.counts[this.depth - 1]);
+        if (this.tokenizer.nextClean() != ':') {
+            throw this.tokenizer.syntaxError("Expected a ':' after a key");
+        }
+        startKey((String) this.value);
+        this.state = VALUE;
+        return JSONToken.FIELD_NAME;
+    }
+
+    private JSONToken readObjectNext() throws JSONException {
+
+        /*
+         * Pairs are separated by ','. We will also tolerate ';'.
+         */
+
+        final char c = this.tokenizer.nextClean();
+        if (this.strict) {
+            return readStrictObjectNext(c);
+        }
+        switch (c) {
+            case ';':
+            case ',':
+                if (this.tokenizer.nextClean() == '}') {
+                    return endContainer(JSONToken.END_OBJECT);
+                }
+                this.tokenizer.back();
+                return readObjectKey();
+            case '}':
+                return endContainer(JSONToken.END_OBJECT);
+            default:
+                throw this.tokenizer.syntaxError("Expected a ',' or '}'");
+        }
+    }
+
+    /**
+     * In a strict text, pairs are separated by ',' alone, and another key must follow it.
+     */
+    private JSONToken readStrictObjectNext(final char c) throws JSONException {
+        switch (c) {
+            case ',':
+                return readStrictKey(this.tokenizer.nextClean());
+            case '}':
+                return endContainer(JSONToken.END_OBJECT);
+            default:
+                throw this.tokenizer.syntaxError("Expected a ',' or '}'");
+        }
+    }
+
+    private JSONToken readArrayFirst() throws JSONException {
+        if (this.tokenizer.nextClean() == ']') {
+            return endContainer(JSONToken.END_ARRAY);
+        }
+        this.tokenizer.back();
+        return readArrayElement();
+    }
+
+    private JSONToken readArrayElement() throws JSONException {
+        this.tokenizer.checkElementCount(++this.counts[this.depth - 1]);
+        if (this.strict) {
+            return readValueToken();
+        }
+        if (this.tokenizer.nextClean() == ',') {
+            this.tokenizer.back();
+            afterValue();
+            return JSONToken.VALUE_NULL;
+        }
+        this.tokenizer.back();
+        return readValueToken();
+    }
+
+    private JSONToken readArrayNext() throws JSONException {
+        final char c = this.tokenizer.nextClean();
+        if (this.strict) {
+            return readStrictArrayNext(c);
+        }
+        switch (c) {
+            case ';':
+            case ',':
+                if (this.tokenizer.nextClean() == ']') {
+                    return endContainer(JSONToken.END_ARRAY);
+                }
+                this.tokenizer.back();
+                return readArrayElement();
+            case ']':
+            case ')':
+                final char q = this.closers[this.depth - 1];
+                if (q != c) {
+                    throw this.tokenizer.syntaxError("Expected a '" + q + "'");
+                }
+                return endContainer(JSONToken.END_ARRAY);
+            default:
+                throw this.tokenizer.syntaxError("Expected a ',' or ']'");
+        }
+    }
+
+    /**
+     * In a strict text, elements are separated by ',' alone, and another element must follow it.
+     */
+    private JSONToken readStrictArrayNext(final char c) throws JSONException {
+        switch (c) {
+            case ',':
+                return readArrayElement();
+            case ']':
+                return endContainer(JSONToken.END_ARRAY);
+            default:
+                throw this.tokenizer.syntaxError("Expected a ',' or ']'");
+        }
+    }
+
+    private static JSONToken scalarToken(final Object scalar) {
+        JSONToken result;
+        if (scalar instanceof Number) {
+            result = JSONToken.VALUE_NUMBER;
+        } else if (scalar instanceof Boolean) {
+            result = ((Boolean) scalar).booleanValue() ? JSONToken.VALUE_TRUE : JSONToken.VALUE_FALSE;
+        } else if (JSONObject.NULL_OBJECT.equals(scalar)) {
+            result = JSONToken.VALUE_NULL;
+        } else {
+            result = JSONToken.VALUE_STRING;
+        }
+        return result;
+    }
+
+    private void push(final char closer) throws JSONException {
+        this.tokenizer.checkDepth(this.depth + 1);
+        if (this.depth == this.closers.length) {
+            this.closers = Arrays.copyOf(this.closers, this.depth * 2);
+            this.names = Arrays.copyOf(this.names, this.depth * 2);
+            this.counts = Arrays.copyOf(this.counts, this.depth * 2);
+            this.marks = Arrays.copyOf(this.marks, this.depth * 2);
+        }
+        this.closers[this.depth] = closer;
+        this.names[this.depth] = null;
+        this.counts[this.depth] = 0;
+        if (closer == OBJECT_CLOSER) {
+            this.marks[this.depth] = this.keys.open();
+        }
+        this.depth++;
+    }
+
+    private JSONToken endContainer(final JSONToken end) throws JSONException {
+        this.depth--;
+        this.names[this.depth] = null;
+        if (this.closers[this.depth] == OBJECT_CLOSER) {
+            this.keys.close(this.marks[this.depth]);
+        }
+        afterValue();
+        return end;
+    }
+
+    /**
+     * Start the key of a member of the innermost object, which is entered in the key set once its value has been read.
+     * 
+     * @param key the key
+     */
+    private void startKey(final String key) {
+        this.names[this.depth - 1] = key;
+        this.keys.startKey();
+        this.keys.append(key);
+    }
+
+    /**
+     * Move to the state that follows a complete value in the enclosing container.
+     * 
+     * @throws JSONException If the value completes a member whose key the object already has, or the text is strict and the value is followed by
+     *             more text.
+     */
+    private void afterValue() throws JSONException {
+        if (this.depth == 0) {
+            if (this.strict) {
+                this.tokenizer.checkEnd();
+            }
+            this.state = DONE;
+        } else if (this.closers[this.depth - 1] == OBJECT_CLOSER) {
+            if (!this.keys.enter()) {
+                throw new JSONException("Duplicate key \"" + this.keys.lastKey() + "\"");
+            }
+            this.state = OBJECT_NEXT;
+        } else {
+            this.state = ARRAY_NEXT;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.ericsson.eniq.events.server.json;
+
+/**
+ * Receives the records read by a {@link JSONLinesReader}. Records are always handed over on the thread that called
+ * {@link JSONLinesReader#read(JSONRecordConsumer)}, whichever thread parsed them, so a consumer needs no synchronization of its own.
+ * <p/>
+ * The consumer may throw a JSONException to abandon the read.
+ * 
+ * @see JSONLinesReader
+ */
+public interface JSONRecordConsumer {
+
+    /**
+     * Called with each record.
+     * 
+     * @param line the number of the line holding the record, counting from 1
+     * @param record the record
+     * @throws JSONException to abandon the read
+     */
+    void record(long line, JSONObject record) throws JSONException;
+}
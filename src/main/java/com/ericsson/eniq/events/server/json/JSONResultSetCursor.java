@@ -0,0 +1,122 @@
+package com.ericsson.eniq.events.server.json;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * Package scope internal class
+ * 
+ * A JSONRowCursor that reads a JDBC ResultSet, naming each column by its label. A SQLException is thrown on as the cause of a JSONException.
+ * 
+ * @see JSONGridWriter#writeRows(ResultSet)
+ */
+final class JSONResultSetCursor implements JSONRowCursor {
+
+    private final ResultSet resultSet;
+
+    private ResultSetMetaData metaData;
+
+    /**
+     * @param resultSet the result set, before its first row
+     */
+    JSONResultSetCursor(final ResultSet resultSet) {
+        this.resultSet = resultSet;
+    }
+
+    public int getColumnCount() throws JSONException {
+        try {
+            return metaData().getColumnCount();
+        } catch (final SQLException exception) {
+            throw new JSONException(exception);
+        }
+    }
+
+    public String getColumnName(final int column) throws JSONException {
+        try {
+            return metaData().getColumnLabel(column);
+        } catch (final SQLException exception) {
+            throw new JSONException(exception);
+        }
+    }
+
+    public int getColumnType(final int column) throws JSONException {
+        try {
+            return metaData().getColumnType(column);
+        } catch (final SQLException exception) {
+            throw new JSONException(exception);
+        }
+    }
+
+    public boolean next() throws JSONException {
+        try {
+            return this.resultSet.next();
+        } catch (final SQLException exception) {
+            throw new JSONException(exception);
+        }
+    }
+
+    public long getLong(final int column) throws JSONException {
+        try {
+            return this.resultSet.getLong(column);
+        } catch (final SQLException exception) {
+            throw new JSONException(exception);
+        }
+    }
+
+    public double getDouble(final int column) throws JSONException {
+        try {
+            return this.resultSet.getDouble(column);
+        } catch (final SQLException exception) {
+            throw new JSONException(exception);
+        }
+    }
+
+    public boolean getBoolean(final int column) throws JSONException {
+        try {
+            return this.resultSet.getBoolean(column);
+        } catch (final SQLException exception) {
+            throw new JSONException(exception);
+        }
+    }
+
+    public String getString(final int column) throws JSONException {
+        try {
+            return this.resultSet.getString(column);
+        } catch (final SQLException exception) {
+            throw new JSONException(exception);
+        }
+    }
+
+    public Timestamp getTimestamp(final int column) throws JSONException {
+        try {
+            return this.resultSet.getTimestamp(column);
+        } catch (final SQLException exception) {
+            throw new JSONException(exception);
+        }
+    }
+
+    public Object getObject(final int column) throws JSONException {
+        try {
+            return this.resultSet.getObject(column);
+        } catch (final SQLException exception) {
+            throw new JSONException(exception);
+        }
+    }
+
+    public boolean wasNull() throws JSONException {
+        try {
+            return this.resultSet.wasNull();
+        } catch (final SQLException exception) {
+            throw new JSONException(exception);
+        }
+    }
+
+    private ResultSetMetaData metaData() throws SQLException {
+        if (this.metaData == null) {
+            this.metaData = this.resultSet.getMetaData();
+        }
+        return this.metaData;
+    }
+}
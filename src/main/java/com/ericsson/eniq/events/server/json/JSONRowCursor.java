@@ -0,0 +1,91 @@
+package com.ericsson.eniq.events.server.json;
+
+import java.sql.Timestamp;
+
+/**
+ * A forward only cursor over rows of typed columns, as read by a {@link JSONGridWriter}. It follows the conventions of java.sql.ResultSet, which
+ * {@link JSONGridWriter#writeRows(java.sql.ResultSet)} reads through a cursor of its own: columns are numbered from 1, column types are
+ * java.sql.Types codes, and a primitive getter returns 0 or false for a null, which {@link #wasNull()} then reports.
+ * <p/>
+ * Any method may throw a JSONException to abandon the write.
+ * 
+ * @see JSONGridWriter
+ */
+public interface JSONRowCursor {
+
+    /**
+     * @return the number of columns
+     * @throws JSONException to abandon the write
+     */
+    int getColumnCount() throws JSONException;
+
+    /**
+     * @param column the column number, from 1
+     * @return the member name of the column in each row
+     * @throws JSONException to abandon the write
+     */
+    String getColumnName(int column) throws JSONException;
+
+    /**
+     * @param column the column number, from 1
+     * @return the java.sql.Types code of the column, which selects the getter used to read it
+     * @throws JSONException to abandon the write
+     */
+    int getColumnType(int column) throws JSONException;
+
+    /**
+     * Move to the next row, or to the first row on the first call.
+     * 
+     * @return true if there is a row, false after the last row
+     * @throws JSONException to abandon the write
+     */
+    boolean next() throws JSONException;
+
+    /**
+     * @param column the column number, from 1
+     * @return the value of an integer column in the current row
+     * @throws JSONException to abandon the write
+     */
+    long getLong(int column) throws JSONException;
+
+    /**
+     * @param column the column number, from 1
+     * @return the value of a floating point column in the current row
+     * @throws JSONException to abandon the write
+     */
+    double getDouble(int column) throws JSONException;
+
+    /**
+     * @param column the column number, from 1
+     * @return the value of a boolean column in the current row
+     * @throws JSONException to abandon the write
+     */
+    boolean getBoolean(int column) throws JSONException;
+
+    /**
+     * @param column the column number, from 1
+     * @return the value of a character column in the current row, or null
+     * @throws JSONException to abandon the write
+     */
+    String getString(int column) throws JSONException;
+
+    /**
+     * @param column the column number, from 1
+     * @return the value of a timestamp column in the current row, or null
+     * @throws JSONException to abandon the write
+     */
+    Timestamp getTimestamp(int column) throws JSONException;
+
+    /**
+     * @param column the column number, from 1
+     * @return the value of a column of any other type in the current row, or null
+     * @throws JSONException to abandon the write
+     */
+    Object getObject(int column) throws JSONException;
+
+    /**
+     * @return true if the value last read by a primitive getter was null
+     * @throws JSONException to abandon the write
+     */
+    boolean wasNull() throws JSONException;
+}
@@ -0,0 +1,95 @@
+package com.ericsson.eniq.events.server.json;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Package scope internal class
+ * 
+ * A bounded cache of object keys, so that a key repeated throughout a document, or from one document to the next, is returned by the tokenizer as
+ * the same String instance. Keys are looked up straight from the source buffer with a hash computed while they are scanned, so a key that has been
+ * seen before costs neither an allocation nor a second pass to hash it when it is put in a JSONObject.
+ * <p/>
+ * The table is direct mapped: each hash selects one slot, and a new key simply replaces whatever the slot held. Slots are written without locking;
+ * Strings are immutable, so a thread that sees a stale or replaced entry just misses and makes its own String.
+ */
+final class JSONSymbolTable {
+
+    /**
+     * Table shared by all tokenizers.
+     */
+    static final JSONSymbolTable SHARED = new JSONSymbolTable(1024);
+
+    /**
+     * Longer keys are not cached; they are rarely repeated and would push out the short ones.
+     */
+    static final int MAX_SYMBOL_LENGTH = 64;
+
+    private final String[] symbols;
+
+    private final int mask;
+
+    /**
+     * @param size number of slots, a power of two
+     */
+    JSONSymbolTable(final int size) {
+        this.symbols = new String[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Find a cached key equal to a run of characters.
+     * 
+     * @param buffer source characters
+     * @param start index of the first character of the key
+     * @param count number of characters in the key
+     * @param hash the key's hash code, as computed by {@link String#hashCode()}
+     * @return the key, or null if it is not in the table
+     */
+    String get(final char[] buffer, final int start, final int count, final int hash) {
+        final String symbol = this.symbols[slot(hash)];
+        if ((symbol == null) || (symbol.hashCode() != hash) || (symbol.length() != count)) {
+            return null;
+        }
+        for (int i = 0; i < count; i++) {
+            if (symbol.charAt(i) != buffer[start + i]) {
+                return null;
+            }
+        }
+        return symbol;
+    }
+
+    /**
+     * Find a cached key equal to a run of ASCII bytes.
+     * 
+     * @param buffer source bytes
+     * @param start index of the first byte of the key
+     * @param count number of bytes in the key
+     * @param hash the key's hash code, as computed by {@link String#hashCode()}
+     * @return the key, or null if it is not in the table
+     */
+    String get(final ByteBuffer buffer, final int start, final int count, final int hash) {
+        final String symbol = this.symbols[slot(hash)];
+        if ((symbol == null) || (symbol.hashCode() != hash) || (symbol.length() != count)) {
+            return null;
+        }
+        for (int i = 0; i < count; i++) {
+            if (symbol.charAt(i) != buffer.get(start + i)) {
+                return null;
+            }
+        }
+        return symbol;
+    }
+
+    /**
+     * Cache a key, replacing any other key in its slot.
+     * 
+     * @param symbol the key
+     */
+    void put(final String symbol) {
+        this.symbols[slot(symbol.hashCode())] = symbol;
+    }
+
+    private int slot(final int hash) {
+        return (hash ^ (hash >>> 16)) & this.mask;
+    }
+}
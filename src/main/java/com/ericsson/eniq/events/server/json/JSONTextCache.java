@@ -0,0 +1,165 @@
+package com.ericsson.eniq.events.server.json;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Package scope internal class
+ * 
+ * The JSON text of a JSONObject or JSONArray, kept once it has been made so that an unchanged value is written as one copy of its text rather
+ * than by walking and encoding its tree again. The UTF-8 bytes of the text are kept as well, the first time it is written to a
+ * {@link JSONWriter}.
+ * <p/>
+ * A change to a value in the tree must drop the text of every value whose text includes it, and a value does not know what holds it. So a cache
+ * is also given to each JSONObject and JSONArray written while a cached text is made, whether its own text is cached or not, and the cache whose
+ * text was being made is recorded as a parent in it. A change drops the text of the value changed and of its recorded parents, and theirs in turn,
+ * and clears the records; the parents record themselves again when they next make their text. A value that is taken out of a tree may leave its
+ * record behind, which only costs the old parent its text the next time the value is changed.
+ * <p/>
+ * A text made while a value in it is changed on another thread must not be kept. Each change counts a new version of the cache, and a text is only
+ * kept if the version it was made from is still the current one.
+ * 
+ * @see JSONObject#setTextCached(boolean)
+ */
+final class JSONTextCache {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private volatile boolean enabled;
+
+    private volatile String text;
+
+    private volatile byte[] bytes;
+
+    /**
+     * Number of changes to the value, guarded by this.
+     */
+    private int version;
+
+    /**
+     * A cache whose text includes the text of this value, or null. Most values have a single parent, which needs no list.
+     */
+    private JSONTextCache parent;
+
+    /**
+     * Further caches whose text includes the text of this value, or null.
+     */
+    private List<JSONTextCache> otherParents;
+
+    /**
+     * @return true if the text of the value is to be kept
+     */
+    boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * @param enabled true to keep the text of the value, false to drop it and stop keeping it
+     */
+    synchronized void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            this.bytes = null;
+            this.text = null;
+        }
+    }
+
+    /**
+     * @return the text kept, or null if there is none
+     */
+    String getText() {
+        return this.text;
+    }
+
+    /**
+     * @return the version to pass to {@link #setText(String, int)} with a text made from now on
+     */
+    synchronized int getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Keep the text of the value, unless the value has changed since the text was started.
+     * 
+     * @param text the text of the value
+     * @param version the version of the cache when the text was started
+     */
+    synchronized void setText(final String text, final int version) {
+        if (this.enabled && (version == this.version)) {
+            this.bytes = null;
+            this.text = text;
+        }
+    }
+
+    /**
+     * Record a cache whose text is being made from the text of this value.
+     * 
+     * @param parent the cache
+     */
+    synchronized void addParent(final JSONTextCache parent) {
+        if ((this.parent == null) || (this.parent == parent)) {
+            this.parent = parent;
+            return;
+        }
+        if (this.otherParents == null) {
+            this.otherParents = new ArrayList<JSONTextCache>(2);
+        }
+        for (final JSONTextCache other : this.otherParents) {
+            if (other == parent) {
+                return;
+            }
+        }
+        this.otherParents.add(parent);
+    }
+
+    /**
+     * Drop the text of the value, which has changed, and the texts that include it.
+     */
+    void invalidate() {
+        final JSONTextCache changed;
+        final List<JSONTextCache> otherChanged;
+        synchronized (this) {
+            this.version++;
+            this.bytes = null;
+            this.text = null;
+            changed = this.parent;
+            otherChanged = this.otherParents;
+            this.parent = null;
+            this.otherParents = null;
+        }
+        if (changed != null) {
+            changed.invalidate();
+        }
+        if (otherChanged != null) {
+            for (final JSONTextCache other : otherChanged) {
+                other.invalidate();
+            }
+        }
+    }
+
+    /**
+     * Write the text of the value, as its bytes if the destination is a JSONWriter's.
+     * 
+     * @param text the text kept
+     * @param out the destination
+     * @throws IOException If the destination cannot be written to.
+     */
+    void write(final String text, final Appendable out) throws IOException {
+        if (out instanceof JSONUtf8Output) {
+            byte[] encoded = this.bytes;
+            if (encoded == null) {
+                encoded = text.getBytes(UTF_8);
+                synchronized (this) {
+                    if (this.text == text) {
+                        this.bytes = encoded;
+                    }
+                }
+            }
+            ((JSONUtf8Output) out).write(encoded);
+        } else {
+            out.append(text);
+        }
+    }
+}
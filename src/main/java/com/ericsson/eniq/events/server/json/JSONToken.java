@@ -0,0 +1,57 @@
+package com.ericsson.eniq.events.server.json;
+
+/**
+ * The kinds of token returned by a {@link JSONReader}.
+ */
+public enum JSONToken {
+
+    /**
+     * <code>{</code>&nbsp;<small>(left brace)</small>, the start of an object.
+     */
+    START_OBJECT,
+
+    /**
+     * <code>}</code>&nbsp;<small>(right brace)</small>, the end of an object.
+     */
+    END_OBJECT,
+
+    /**
+     * <code>[</code>&nbsp;<small>(left bracket)</small> or <code>(</code>, the start of an array.
+     */
+    START_ARRAY,
+
+    /**
+     * <code>]</code>&nbsp;<small>(right bracket)</small> or <code>)</code>, the end of an array.
+     */
+    END_ARRAY,
+
+    /**
+     * The name of an object member. The member's value follows.
+     */
+    FIELD_NAME,
+
+    /**
+     * A quoted string, or unquoted text that is not a number or one of the reserved words.
+     */
+    VALUE_STRING,
+
+    /**
+     * A number, held as an Integer, Long or Double.
+     */
+    VALUE_NUMBER,
+
+    /**
+     * The value <code>true</code>.
+     */
+    VALUE_TRUE,
+
+    /**
+     * The value <code>false</code>.
+     */
+    VALUE_FALSE,
+
+    /**
+     * The value <code>null</code>, or an array element elided by consecutive commas.
+     */
+    VALUE_NULL
+}
@@ -1,13 +1,16 @@
 package com.ericsson.eniq.events.server.json;
 
-import java.io.*;
-
 /**
  * REVISIT: to be replaced by JSON API such as jettison or jackson
  * 
  * Package scope internal class
  * 
  * A JSONTokenizer takes a source string and extracts characters and tokens from it.
+ * <p/>
+ * The source characters are read by index straight out of a char array, so strings, whitespace and unquoted text are scanned in bulk rather than
+ * being pulled through a Reader one character at a time. Positions are tracked as long values, so that subclasses reading files of more than 2 GB
+ * still report the right place in syntax errors. Only the number of characters consumed is counted as the text is read; the line and character
+ * reported in a syntax error are worked out from the input when the error is raised.
  * 
  * @see JSONObject
  * @see JSONArray
@@ -15,19 +18,99 @@ import java.io.*;
 @SuppressWarnings("PMD.CyclomaticComplexity")
 public class JSONTokenizer {
 
-    private int character;
+    /**
+     * Characters that terminate unquoted text, indexed by character value.
+     */
+    private static final boolean[] UNQUOTED_TEXT_DELIMITERS = new boolean[128];
+
+    /**
+     * Number of digits of a strict integer that can be accumulated in a long without overflowing.
+     */
+    private static final int MAX_EXACT_DIGITS = 18;
+
+    static {
+        for (final char c : ",:]}/\\\"[{;=#".toCharArray()) {
+            UNQUOTED_TEXT_DELIMITERS[c] = true;
+        }
+    }
 
     private boolean eof;
 
-    private int index; //NOPMD - erroneous PMD warning
+    /**
+     * Set once an embedded NUL has been read. It ends the text as the end of the input does, but there may be more input after it.
+     */
+    private boolean nulRead;
 
-    private int line; //NOPMD - erroneous PMD warning
+    private long index; //NOPMD - erroneous PMD warning
 
     private char previous;
 
+    /**
+     * Number of line breaks that have been stepped back over and read again. Each one read again starts another line in the positions reported.
+     */
+    private long lineBreaksReread;
+
+    /**
+     * Number of characters consumed when a '\r' was last read again, which restarts the character count of the position reported.
+     */
+    private long returnRereadAt = -1;
+
     private boolean usePrevious;
 
-    private final Reader reader;
+    private final char[] buffer;
+
+    private final int offset;
+
+    private final int length;
+
+    /**
+     * If set, nested objects and arrays are validated and skipped, and only parsed when first accessed.
+     */
+    private boolean lazy;
+
+    /**
+     * Whether skipped objects are checked for duplicated keys. Tokenizers re-reading text that has already been validated do not need to.
+     */
+    private boolean checkSkippedKeys = true;
+
+    /**
+     * If set, the nested objects and arrays are only skipped over to find where they start, and are left to be parsed in full, independently of
+     * each other.
+     */
+    private boolean splitting;
+
+    /**
+     * If set, only standard JSON is accepted, and it is read by a state machine without the branches for the lenient forms.
+     */
+    private boolean strict;
+
+    /**
+     * The parts of the value being read that are to be built, or null to build all of it.
+     */
+    private JSONProjection projection;
+
+    /**
+     * Keys of the objects being skipped, reused from one object to the next.
+     */
+    private JSONKeySet skippedKeys;
+
+    /**
+     * Number of objects and arrays open around the current position.
+     */
+    private int depth;
+
+    private int maxDepth = Integer.MAX_VALUE;
+
+    private int maxStringLength = Integer.MAX_VALUE;
+
+    private int maxObjectMembers = Integer.MAX_VALUE;
+
+    private int maxArrayElements = Integer.MAX_VALUE;
+
+    /**
+     * Cache of object keys, so that repeated keys are returned as the same String.
+     */
+    private final JSONSymbolTable symbols = JSONSymbolTable.SHARED;
 
     /**
      * Construct a JSONTokenizer from a string.
@@ -35,13 +118,28 @@ public class JSONTokenizer {
      * @param s source JSON string.
      */
     public JSONTokenizer(final String s) {
-        this.reader = new StringReader(s);
+        this(s.toCharArray(), 0, s.length());
+    }
+
+    /**
+     * Construct a JSONTokenizer reading directly from a region of a char array. The array is not copied, so it must not be modified while the
+     * tokenizer is in use.
+     * 
+     * @param buffer source JSON characters.
+     * @param offset index of the first character to read.
+     * @param length number of characters to read.
+     */
+    public JSONTokenizer(final char[] buffer, final int offset, final int length) {
+        if ((offset < 0) || (length < 0) || (offset > buffer.length - length)) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", buffer length " + buffer.length);
+        }
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
         this.eof = false;
         this.usePrevious = false;
         this.previous = 0;
         this.index = 0;
-        this.character = 1;
-        this.line = 1;
     }
 
     /**
@@ -55,7 +153,6 @@ public class JSONTokenizer {
             throw new JSONException("Stepping back two steps is not supported");
         }
         this.index -= 1;
-        this.character -= 1;
         this.usePrevious = true;
         this.eof = false;
     }
@@ -71,109 +168,499 @@ public class JSONTokenizer {
      * @throws JSONException if input prematurely exhausted
      */
     public char next() throws JSONException {
-        int c;
+        char c;
         if (this.usePrevious) {
             this.usePrevious = false;
             c = this.previous;
-        } else {
-            try {
-                c = this.reader.read();
-            } catch (final IOException exception) {
-                throw new JSONException(exception);
+            if ((c == '\n') || (c == '\r')) {
+                rereadLineBreak(c);
             }
-
-            if (c <= 0) { // End of stream
-                this.eof = true;
-                c = 0;
+        } else if (this.index < this.length) {
+            c = this.buffer[this.offset + (int) this.index];
+            if (c == 0) { // Embedded NUL ends the stream, as it did for the Reader
+                markNul();
             }
+        } else { // End of stream
+            this.eof = true;
+            c = 0;
+        }
+        advance(c);
+        return c;
+    }
+
+    /**
+     * @return true if the last character read has been stepped back over and will be returned again by {@link #next()}.
+     */
+    final boolean isBackedUp() {
+        return this.usePrevious;
+    }
+
+    /**
+     * Record that the end of the input has been reached.
+     */
+    final void markEnd() {
+        this.eof = true;
+    }
+
+    /**
+     * Record that an embedded NUL has been read, which ends the text as the end of the input does.
+     */
+    final void markNul() {
+        this.eof = true;
+        this.nulRead = true;
+    }
+
+    /**
+     * Note a line break read a second time, after stepping back over it.
+     * 
+     * @param c '\n' or '\r'
+     */
+    private void rereadLineBreak(final char c) {
+        this.lineBreaksReread++;
+        if (c == '\r') {
+            this.returnRereadAt = this.index + 1;
         }
+    }
+
+    /**
+     * Account for one character having been consumed.
+     * 
+     * @param c the character consumed
+     */
+    final void advance(final char c) {
         this.index++;
-        if (this.previous == '\r') {
-            this.line++;
-            this.character = c == '\n' ? 0 : 1;
-        } else if (c == '\n') {
-            this.line++;
-            this.character = 0;
-        } else {
-            this.character++;
+        this.previous = c;
+    }
+
+    /**
+     * Account for a run of characters having been consumed in bulk. The run must not contain '\r' or '\n', and the character consumed before it must
+     * not be '\r', so the run only moves the index.
+     * 
+     * @param count number of characters in the run, at least one
+     * @param last the final character of the run
+     */
+    final void advanceRun(final int count, final char last) {
+        this.index += count;
+        this.previous = last;
+    }
+
+    /**
+     * Work out the line and character reached after the characters at the start of the input, as they were returned by {@link #next()}. Past the
+     * end of the input, each character is 0.
+     * 
+     * @param count number of characters from the start of the input
+     * @return the position
+     */
+    JSONPosition positionAfter(final long count) {
+        final JSONPosition position = new JSONPosition();
+        final long available = Math.min(count, this.length);
+        for (int i = 0; i < available; i++) {
+            position.advance(this.buffer[this.offset + i]);
         }
-        this.previous = (char) c;
-        return this.previous;
+        while (position.getCount() < count) {
+            position.advance((char) 0);
+        }
+        return position;
     }
 
     /**
-     * Get the next char in the string, skipping whitespace.
+     * Get the next char in the string, skipping whitespace. In a strict text only space, tab, line feed and carriage return are whitespace, and any
+     * other control character is returned, to be reported as the syntax error it is.
      * 
      * @throws JSONException if stream prematurely exhausted
      * @return A character, or 0 if there are no more characters.
      */
     public char nextClean() throws JSONException {
-        for (;;) {
+        if (this.usePrevious) {
             final char c = next();
-            if ((c == 0) || (c > ' ')) {
+            if ((c == 0) || (c > ' ') || !isWhitespace(c)) {
+                return c;
+            }
+        }
+        final char[] buf = this.buffer;
+        final int end = this.offset + this.length;
+        for (int i = this.offset + (int) this.index; i < end; i++) {
+            final char c = buf[i];
+            advance(c);
+            if (c > ' ') {
                 return c;
             }
+            if (c == 0) {
+                markNul();
+                return c;
+            }
+            if (!isWhitespace(c)) {
+                return c;
+            }
+        }
+        return next();
+    }
+
+    /**
+     * @param c a control character or space, other than 0
+     * @return true if the character is whitespace between tokens: any of them in a lenient text, but only space, tab, line feed and carriage
+     *         return in a strict text
+     */
+    final boolean isWhitespace(final char c) {
+        return !this.strict || (c == ' ') || (c == '\t') || (c == '\n') || (c == '\r');
+    }
+
+    /**
+     * Check that there is nothing but whitespace after the value that has been read, up to the real end of the input. An embedded NUL is not the
+     * end here, as the text after it would go with the text checked.
+     * 
+     * @throws JSONException If there is more text.
+     */
+    final void checkEnd() throws JSONException {
+        if ((nextClean() != 0) || this.nulRead) {
+            throw syntaxError("Expected the end of the text");
         }
     }
 
     /**
      * Return the characters up to the next close quote character. Backslash processing is done. The formal JSON format does not allow strings in
      * single quotes, but an implementation is allowed to accept them.
+     * <p/>
+     * Runs of characters that need no processing are located by index and copied out of the buffer in one go; a String is only assembled piecewise
+     * when the value contains escapes.
      * 
      * @param quote The quoting character, either " or '
      * @return A String.
      * @throws JSONException Unterminated string.
      */
-    private String nextString(final char quote) throws JSONException {
-        char c;
-        final StringBuilder sb = new StringBuilder();
+    String nextString(final char quote) throws JSONException {
+        StringBuilder sb = null;
         for (;;) {
-            c = next();
+            final int start = this.offset + (int) this.index;
+            final int run = this.usePrevious ? 0 : scanStringRun(start, quote);
+            if (run > 0) {
+                if (run > this.maxStringLength - (sb == null ? 0 : sb.length())) {
+                    throw stringLengthError(start, sb == null ? 0 : sb.length());
+                }
+                advanceRun(run, this.buffer[start + run - 1]);
+            }
+            final char c = next();
+            if (c == quote) {
+                if (sb == null) {
+                    return new String(this.buffer, start, run);
+                }
+                return sb.append(this.buffer, start, run).toString();
+            }
+            if (sb == null) {
+                sb = new StringBuilder(run + 16);
+            }
+            sb.append(this.buffer, start, run);
             switch (c) {
                 case 0:
                 case '\n':
                 case '\r':
                     throw syntaxError("Unterminated string");
                 case '\\':
-                    c = next();
-                    switch (c) {
-                        case 'b':
-                            sb.append('\b');
-                            break;
-                        case 't':
-                            sb.append('\t');
-                            break;
-                        case 'n':
-                            sb.append('\n');
-                            break;
-                        case 'f':
-                            sb.append('\f');
-                            break;
-                        case 'r':
-                            sb.append('\r');
-                            break;
-                        case 'u':
-                            sb.append((char) Integer.parseInt(next(4), 16));
-                            break;
-                        case '"':
-                        case '\'':
-                        case '\\':
-                        case '/':
-                            sb.append(c);
-                            break;
-                        default:
-                            throw syntaxError("Illegal escape.");
-                    }
+                    appendEscape(sb);
                     break;
                 default:
-                    if (c == quote) {
-                        return sb.toString();
-                    }
+                    checkStringCharacter(c);
                     sb.append(c);
             }
+            if (sb.length() > this.maxStringLength) {
+                throw stringLengthError();
+            }
+        }
+    }
+
+    /**
+     * Consume the characters of a run in a string up to the first one beyond the maximum length of a string, and make the error for it.
+     * 
+     * @param start absolute buffer index of the run
+     * @param length number of characters of the string before the run
+     * @return A JSONException object, suitable for throwing
+     */
+    private JSONException stringLengthError(final int start, final int length) {
+        final int count = this.maxStringLength - length + 1;
+        advanceRun(count, this.buffer[start + count - 1]);
+        return stringLengthError();
+    }
+
+    /**
+     * Read the character following a backslash in a quoted string and append the character it stands for.
+     * 
+     * @param sb buffer receiving the unescaped character
+     * @throws JSONException Illegal escape.
+     */
+    final void appendEscape(final StringBuilder sb) throws JSONException {
+        sb.append(nextEscape());
+    }
+
+    /**
+     * Read the character following a backslash in a quoted key and append the character it stands for to a set of keys.
+     * 
+     * @param keys the set, in which the key has been started
+     * @throws JSONException Illegal escape.
+     */
+    final void appendEscape(final JSONKeySet keys) throws JSONException {
+        keys.append(nextEscape());
+    }
+
+    /**
+     * Read the character following a backslash in a quoted string.
+     * 
+     * @return the character the escape stands for
+     * @throws JSONException Illegal escape.
+     */
+    private char nextEscape() throws JSONException {
+        final char c = next();
+        char rv;
+        switch (c) {
+            case 'b':
+                rv = '\b';
+                break;
+            case 't':
+                rv = '\t';
+                break;
+            case 'n':
+                rv = '\n';
+                break;
+            case 'f':
+                rv = '\f';
+                break;
+            case 'r':
+                rv = '\r';
+                break;
+            case 'u':
+                rv = nextUnicodeEscape();
+                break;
+            case '\'':
+                if (this.strict) {
+                    throw syntaxError("Illegal escape.");
+                }
+                rv = c;
+                break;
+            case '"':
+            case '\\':
+            case '/':
+                rv = c;
+                break;
+            default:
+                throw syntaxError("Illegal escape.");
+        }
+        return rv;
+    }
+
+    /**
+     * Read the four hex digits of a unicode escape. Standard JSON requires exactly four ASCII hex digits, where the lenient grammar takes anything
+     * that Integer.parseInt does, such as a sign.
+     * 
+     * @return the character the escape stands for
+     * @throws JSONException Illegal escape.
+     */
+    private char nextUnicodeEscape() throws JSONException {
+        final String digits = next(4);
+        if (this.strict) {
+            for (int i = 0; i < 4; i++) {
+                final char c = digits.charAt(i);
+                if (!(((c >= '0') && (c <= '9')) || ((c >= 'a') && (c <= 'f')) || ((c >= 'A') && (c <= 'F')))) {
+                    throw syntaxError("Illegal escape.");
+                }
+            }
+        }
+        try {
+            return (char) Integer.parseInt(digits, 16);
+        } catch (final NumberFormatException exception) {
+            throw syntaxError("Illegal escape.");
+        }
+    }
+
+    /**
+     * Check a character that a quoted string holds as it is. Standard JSON does not allow control characters in strings; the lenient grammar only
+     * rejects line breaks, which are reported as an unterminated string.
+     * 
+     * @param c the character, already consumed
+     * @throws JSONException If the tokenizer is strict and the character is a control character.
+     */
+    final void checkStringCharacter(final char c) throws JSONException {
+        if (this.strict && (c < ' ')) {
+            throw syntaxError("Illegal control character in string");
+        }
+    }
+
+    /**
+     * Read the character following a backslash in a quoted string, checking that it forms a legal escape.
+     * 
+     * @throws JSONException Illegal escape.
+     */
+    final void skipEscape() throws JSONException {
+        switch (next()) {
+            case 'u':
+                nextUnicodeEscape();
+                break;
+            case 'b':
+            case 't':
+            case 'n':
+            case 'f':
+            case 'r':
+            case '"':
+            case '\\':
+            case '/':
+                break;
+            case '\'':
+                if (this.strict) {
+                    throw syntaxError("Illegal escape.");
+                }
+                break;
+            default:
+                throw syntaxError("Illegal escape.");
+        }
+    }
+
+    /**
+     * Count the characters from <code>start</code> that can be taken into a quoted string as they are, i.e. up to the closing quote, a backslash, a
+     * control character or the end of the input.
+     * 
+     * @param start absolute buffer index to scan from
+     * @param quote The quoting character, either " or '
+     * @return the length of the run
+     */
+    private int scanStringRun(final int start, final char quote) {
+        final char[] buf = this.buffer;
+        final int end = this.offset + this.length;
+        int i = start;
+        while (i < end) {
+            final char c = buf[i];
+            if ((c == quote) || (c == '\\') || (c < ' ')) {
+                break;
+            }
+            i++;
+        }
+        return i - start;
+    }
+
+    /**
+     * Get the key of an object member. Quoted keys without escapes are looked up in the symbol table straight from the buffer, so a key repeated
+     * throughout a document comes back as the same String, with its hash code already computed. Anything else is read as {@link #nextValue()}
+     * would read it.
+     * 
+     * @return the key
+     * @throws JSONException If syntax error.
+     */
+    final String nextKey() throws JSONException {
+        final char c = nextClean();
+        if ((c == '"') || (c == '\'')) {
+            return nextKey(c);
+        }
+        back();
+        return nextValue().toString();
+    }
+
+    /**
+     * Return the characters up to the next close quote character of a key, as {@link #nextString(char)} would, taking the key from the symbol
+     * table if it is already there.
+     * 
+     * @param quote The quoting character, either " or '
+     * @return the key
+     * @throws JSONException Unterminated string.
+     */
+    String nextKey(final char quote) throws JSONException {
+        if (!this.usePrevious) {
+            final char[] buf = this.buffer;
+            final int start = this.offset + (int) this.index;
+            final int end = this.offset + this.length;
+            int hash = 0;
+            int i = start;
+            while (i < end) {
+                final char c = buf[i];
+                if ((c == quote) || (c == '\\') || (c < ' ')) {
+                    break;
+                }
+                hash = 31 * hash + c;
+                i++;
+            }
+            final int count = i - start;
+            if ((i < end) && (buf[i] == quote) && (count <= JSONSymbolTable.MAX_SYMBOL_LENGTH) && (count <= this.maxStringLength)) {
+                String key = this.symbols.get(buf, start, count, hash);
+                if (key == null) {
+                    key = new String(buf, start, count);
+                    this.symbols.put(key);
+                }
+                if (count > 0) {
+                    advanceRun(count, buf[i - 1]);
+                }
+                next();
+                return key;
+            }
+        }
+        return nextString(quote);
+    }
+
+    /**
+     * Read the key of an object member into a set of keys, as {@link #nextKey()} would read it. Only a key that is not in quotes is built as a
+     * String.
+     * 
+     * @param keys the set, which the key is started in
+     * @throws JSONException If syntax error.
+     */
+    private void nextKey(final JSONKeySet keys) throws JSONException {
+        final char c = nextClean();
+        keys.startKey();
+        if ((c == '"') || (c == '\'')) {
+            nextKey(c, keys);
+        } else {
+            back();
+            keys.append(nextValue().toString());
+        }
+    }
+
+    /**
+     * Append the characters up to the next close quote character of a key to a set of keys, as {@link #nextString(char)} would return them. Runs
+     * of characters that need no processing are copied in one go.
+     * 
+     * @param quote The quoting character, either " or '
+     * @param keys the set, in which the key has been started
+     * @throws JSONException Unterminated string.
+     */
+    void nextKey(final char quote, final JSONKeySet keys) throws JSONException {
+        int length = 0;
+        for (;;) {
+            if (!this.usePrevious) {
+                final int start = this.offset + (int) this.index;
+                final int run = scanStringRun(start, quote);
+                if (run > 0) {
+                    if (run > this.maxStringLength - length) {
+                        throw stringLengthError(start, length);
+                    }
+                    keys.append(this.buffer, start, run);
+                    advanceRun(run, this.buffer[start + run - 1]);
+                    length += run;
+                }
+            }
+            final char c = next();
+            if (c == quote) {
+                return;
+            }
+            switch (c) {
+                case 0:
+                case '\n':
+                case '\r':
+                    throw syntaxError("Unterminated string");
+                case '\\':
+                    appendEscape(keys);
+                    break;
+                default:
+                    checkStringCharacter(c);
+                    keys.append(c);
+            }
+            if (++length > this.maxStringLength) {
+                throw stringLengthError();
+            }
         }
     }
 
+    /**
+     * @return the cache of object keys
+     */
+    final JSONSymbolTable getSymbolTable() {
+        return this.symbols;
+    }
+
     /**
      * Get the next n characters.
      * 
@@ -186,15 +673,15 @@ public class JSONTokenizer {
         if (n == 0) {
             result = "";
         } else {
-            final char[] buffer = new char[n];
+            final char[] chars = new char[n];
             int pos = 0;
             while (pos < n) {
-                buffer[pos++] = next();
+                chars[pos++] = next();
                 if (end()) {
                     throw syntaxError("Substring bounds error");
                 }
             }
-            result = new String(buffer);
+            result = new String(chars);
         }
 
         return result;
@@ -207,7 +694,10 @@ public class JSONTokenizer {
      * @throws JSONException If syntax error.
      */
     protected Object nextValue() throws JSONException {
-        char c = nextClean();
+        if (this.strict) {
+            return nextStrictValue();
+        }
+        final char c = nextClean();
 
         Object rv = null;
 
@@ -218,40 +708,1188 @@ public class JSONTokenizer {
                 break;
             case '{':
                 back();
-                rv = createJSONObject();
+                rv = this.lazy ? nextLazyValue() : null;
+                if (rv == null) {
+                    rv = createJSONObject();
+                }
                 break;
             case '[':
             case '(':
                 back();
-                rv = createJSONArray();
+                rv = this.lazy ? nextLazyValue() : null;
+                if (rv == null) {
+                    rv = createJSONArray();
+                }
+                break;
+            default:
+                rv = nextUnquotedValue(c);
+                break;
+        }
+
+        return rv;
+    }
+
+    /**
+     * Get the next value of a strict text. Only standard JSON is accepted: strings in double quotes, objects, arrays, numbers, true, false and
+     * null.
+     * 
+     * @return An object.
+     * @throws JSONException If syntax error.
+     */
+    private Object nextStrictValue() throws JSONException {
+        final char c = nextClean();
+
+        Object rv = null;
+
+        switch (c) {
+            case '"':
+                rv = nextString(c);
+                break;
+            case '{':
+                back();
+                rv = this.lazy ? nextLazyValue() : null;
+                if (rv == null) {
+                    rv = createJSONObject();
+                }
+                break;
+            case '[':
+                back();
+                rv = this.lazy ? nextLazyValue() : null;
+                if (rv == null) {
+                    rv = createJSONArray();
+                }
+                break;
+            default:
+                rv = nextStrictLiteral(c);
+                break;
+        }
+
+        return rv;
+    }
+
+    /**
+     * Set whether only standard JSON (RFC 8259) is accepted. None of the lenient forms are allowed, and the value of any standard text is exactly
+     * the one the lenient grammar gives it.
+     * 
+     * @param strict true to accept only standard JSON
+     */
+    final void setStrict(final boolean strict) {
+        this.strict = strict;
+    }
+
+    /**
+     * @return true if only standard JSON is accepted
+     */
+    final boolean isStrict() {
+        return this.strict;
+    }
+
+    /**
+     * Set whether nested objects and arrays are parsed lazily. A lazily parsed value is validated, with the same syntax errors as an eager parse,
+     * but is only turned into a JSONObject or JSONArray when it is first accessed.
+     * 
+     * @param lazy true to parse lazily
+     */
+    final void setLazy(final boolean lazy) {
+        this.lazy = lazy;
+    }
+
+    /**
+     * Split the text at its nested objects and arrays, which are skipped with only the syntax checks needed to find their ends, and returned as
+     * placeholders to be parsed in full later, possibly on other threads. The split can succeed on text that a full parse would reject, so the
+     * placeholders must be parsed before the result is used.
+     */
+    final void setSplitting() {
+        this.lazy = true;
+        this.checkSkippedKeys = false;
+        this.splitting = true;
+    }
+
+    /**
+     * Set the limits on the structure of the text. Going over one of them is reported as a syntax error as soon as it is seen, so nothing is built
+     * beyond it.
+     * 
+     * @param maxDepth maximum number of objects and arrays nested inside each other
+     * @param maxStringLength maximum number of characters in a string, a key or an unquoted value
+     * @param maxObjectMembers maximum number of members of an object
+     * @param maxArrayElements maximum number of elements of an array
+     */
+    final void setLimits(final int maxDepth, final int maxStringLength, final int maxObjectMembers, final int maxArrayElements) {
+        this.maxDepth = maxDepth;
+        this.maxStringLength = maxStringLength;
+        this.maxObjectMembers = maxObjectMembers;
+        this.maxArrayElements = maxArrayElements;
+    }
+
+    /**
+     * Set the parts of the text to build. Everything else is skipped, without building any Strings for it, and without checking the objects in it
+     * for duplicated keys.
+     * 
+     * @param projection the root of the paths to build, or null to build everything
+     */
+    final void setProjection(final JSONProjection projection) {
+        this.projection = projection;
+    }
+
+    /**
+     * @return true if only parts of the value being read are to be built
+     */
+    final boolean isProjecting() {
+        return this.projection != null;
+    }
+
+    /**
+     * Get the value of a member of the object being read, or skip it if it is not to be built.
+     * 
+     * @param key the key of the member, just read
+     * @return the value, or null if it was skipped
+     * @throws JSONException If syntax error.
+     */
+    final Object nextMemberValue(final String key) throws JSONException {
+        return this.projection == null ? nextValue() : nextProjectedValue(this.projection.member(key));
+    }
+
+    /**
+     * Get the next element of the array being read, or skip it if it is not to be built.
+     * 
+     * @return the element, or null if it was skipped
+     * @throws JSONException If syntax error.
+     */
+    final Object nextElementValue() throws JSONException {
+        return this.projection == null ? nextValue() : nextProjectedValue(this.projection.elements());
+    }
+
+    /**
+     * Build the parts of the next value that a projection selects. A value that the paths only go through has to be an object or an array, which
+     * is built with just the selected members or elements; anything else is skipped.
+     * 
+     * @param selected the node for the value, or null to skip it
+     * @return the value, or null if it was skipped
+     * @throws JSONException If syntax error.
+     */
+    private Object nextProjectedValue(final JSONProjection selected) throws JSONException {
+        final JSONProjection current = this.projection;
+        Object rv = null;
+        if (selected == null) {
+            skipUnselectedValue();
+        } else if (selected.isWhole()) {
+            this.projection = null;
+            rv = nextValue();
+        } else {
+            final char c = nextClean();
+            back();
+            this.projection = selected;
+            if (c == '{') {
+                rv = createJSONObject();
+            } else if ((c == '[') || ((c == '(') && !this.strict)) {
+                rv = createJSONArray();
+            } else {
+                skipUnselectedValue();
+            }
+        }
+        this.projection = current;
+        return rv;
+    }
+
+    /**
+     * Skip the next value, which a projection leaves out, without checking its objects for duplicated keys so that no Strings are built for it.
+     * 
+     * @throws JSONException If syntax error.
+     */
+    private void skipUnselectedValue() throws JSONException {
+        final boolean check = this.checkSkippedKeys;
+        this.checkSkippedKeys = false;
+        skipValue();
+        this.checkSkippedKeys = check;
+    }
+
+    /**
+     * Set the maximum length of the input, in characters, or in bytes for a tokenizer reading bytes.
+     * 
+     * @param maxInputLength the limit
+     * @throws JSONException if the input is longer
+     */
+    void setMaxInputLength(final long maxInputLength) throws JSONException {
+        if (this.length > maxInputLength) {
+            throw new JSONException("Input longer than " + maxInputLength + " characters");
+        }
+    }
+
+    /**
+     * Note that the opening brace or bracket of an object or array has been consumed.
+     * 
+     * @throws JSONException if that nests the text too deeply
+     */
+    final void enterContainer() throws JSONException {
+        checkDepth(++this.depth);
+    }
+
+    /**
+     * Note that an object or array has been closed.
+     */
+    final void leaveContainer() {
+        this.depth--;
+    }
+
+    /**
+     * Set the number of objects and arrays open around the current position, for a reader that tracks the nesting itself.
+     * 
+     * @param depth the number open
+     */
+    final void setDepth(final int depth) {
+        this.depth = depth;
+    }
+
+    /**
+     * @param depth number of objects and arrays open
+     * @throws JSONException if the number is over the limit
+     */
+    final void checkDepth(final int depth) throws JSONException {
+        if (depth > this.maxDepth) {
+            throw syntaxError("Nesting deeper than " + this.maxDepth + " levels");
+        }
+    }
+
+    /**
+     * @param count number of members of an object read so far, including the one whose key has just been read
+     * @throws JSONException if the number is over the limit
+     */
+    final void checkMemberCount(final int count) throws JSONException {
+        if (count > this.maxObjectMembers) {
+            throw syntaxError("Object with more than " + this.maxObjectMembers + " members");
+        }
+    }
+
+    /**
+     * @param count number of elements of an array read so far, including the one about to be read
+     * @throws JSONException if the number is over the limit
+     */
+    final void checkElementCount(final int count) throws JSONException {
+        if (count > this.maxArrayElements) {
+            throw syntaxError("Array with more than " + this.maxArrayElements + " elements");
+        }
+    }
+
+    /**
+     * @return the maximum number of characters in a string
+     */
+    final int getMaxStringLength() {
+        return this.maxStringLength;
+    }
+
+    /**
+     * Make the error for a string that has gone over the limit, once the first character beyond it has been consumed.
+     * 
+     * @return A JSONException object, suitable for throwing
+     */
+    final JSONException stringLengthError() {
+        return syntaxError("String longer than " + this.maxStringLength + " characters");
+    }
+
+    /**
+     * @param length number of characters in an unquoted value or a number, all consumed
+     * @throws JSONException if the number is over the limit
+     */
+    final void checkValueLength(final long length) throws JSONException {
+        if (length > this.maxStringLength) {
+            throw syntaxError("Value longer than " + this.maxStringLength + " characters");
+        }
+    }
+
+    /**
+     * Validate and skip the object or array that the tokenizer is backed up onto, recording where it starts so it can be parsed later.
+     * 
+     * @return the placeholder for the value, or null if this tokenizer cannot read its input again
+     * @throws JSONException If syntax error.
+     */
+    private Object nextLazyValue() throws JSONException {
+        final JSONTokenizer source = fork();
+        if (source == null) {
+            return null;
+        }
+        source.lazy = !this.splitting;
+        source.checkSkippedKeys = false;
+        source.strict = this.strict;
+        source.depth = this.depth;
+        source.setLimits(this.maxDepth, this.maxStringLength, this.maxObjectMembers, this.maxArrayElements);
+        skipValue();
+        return new JSONLazyValue(source);
+    }
+
+    /**
+     * Create a new tokenizer over the same input, starting at the character this tokenizer is backed up onto.
+     * 
+     * @return the new tokenizer, or null if the input cannot be read again
+     */
+    JSONTokenizer fork() {
+        return new JSONTokenizer(this.buffer, this.offset + (int) this.index, this.length - (int) this.index);
+    }
+
+    /**
+     * Skip the next value without building it. The grammar, including the lenient forms, and the syntax errors are those of {@link #nextValue()}, and
+     * objects are checked for duplicated keys unless the input has already been validated.
+     * 
+     * @throws JSONException If syntax error or a duplicated key.
+     */
+    final void skipValue() throws JSONException {
+        if (this.strict) {
+            skipStrictValue();
+            return;
+        }
+        final char c = nextClean();
+
+        switch (c) {
+            case '"':
+            case '\'':
+                skipString(c);
+                break;
+            case '{':
+                enterContainer();
+                skipObject();
+                leaveContainer();
+                break;
+            case '[':
+                enterContainer();
+                skipArray(']');
+                leaveContainer();
+                break;
+            case '(':
+                enterContainer();
+                skipArray(')');
+                leaveContainer();
+                break;
+            default:
+                skipUnquotedText(c);
+                break;
+        }
+    }
+
+    /**
+     * Skip the members of an object whose opening brace has been consumed.
+     * 
+     * @see JSONObject#JSONObject(JSONTokenizer)
+     */
+    private void skipObject() throws JSONException {
+        final JSONKeySet keys = this.checkSkippedKeys ? skippedKeys() : null;
+        final int mark = keys == null ? 0 : keys.open();
+        try {
+            char character;
+            int members = 0;
+            for (;;) {
+                character = nextClean();
+                switch (character) {
+                    case 0:
+                        throw syntaxError("A JSONObject text must end with '}'");
+                    case '}':
+                        return;
+                    default:
+                        back();
+                        if (keys == null) {
+                            skipValue();
+                        } else {
+                            nextKey(keys);
+                        }
+                }
+                checkMemberCount(++members);
+
+                /*
+                 * The key is followed by ':'. We will also tolerate '=' or '=>'.
+                 */
+
+                character = nextClean();
+                if (character == '=') {
+                    if (next() != '>') {
+                        back();
+                    }
+                } else if (character != ':') {
+                    throw syntaxError("Expected a ':' after a key");
+                }
+                skipValue();
+                if ((keys != null) && !keys.enter()) {
+                    throw new JSONException("Duplicate key \"" + keys.lastKey() + "\"");
+                }
+
+                /*
+                 * Pairs are separated by ','. We will also tolerate ';'.
+                 */
+
+                switch (nextClean()) {
+                    case ';':
+                    case ',':
+                        if (nextClean() == '}') {
+                            return;
+                        }
+                        back();
+                        break;
+                    case '}':
+                        return;
+                    default:
+                        throw syntaxError("Expected a ',' or '}'");
+                }
+            }
+        } finally {
+            if (keys != null) {
+                keys.close(mark);
+            }
+        }
+    }
+
+    /**
+     * @return the set to hold the keys of the objects being skipped
+     */
+    private JSONKeySet skippedKeys() {
+        if (this.skippedKeys == null) {
+            this.skippedKeys = new JSONKeySet();
+        }
+        return this.skippedKeys;
+    }
+
+    /**
+     * Skip the elements of an array whose opening bracket has been consumed.
+     * 
+     * @param q the character expected to close the array
+     * @see JSONArray#JSONArray(JSONTokenizer)
+     */
+    private void skipArray(final char q) throws JSONException {
+        if (nextClean() == ']') {
+            return;
+        }
+        back();
+        int elements = 0;
+        for (;;) {
+            checkElementCount(++elements);
+            if (nextClean() == ',') {
+                back();
+            } else {
+                back();
+                skipValue();
+            }
+            final char c = nextClean();
+            switch (c) {
+                case ';':
+                case ',':
+                    if (nextClean() == ']') {
+                        return;
+                    }
+                    back();
+                    break;
+                case ']':
+                case ')':
+                    if (q != c) {
+                        throw syntaxError("Expected a '" + q + "'");
+                    }
+                    return;
+                default:
+                    throw syntaxError("Expected a ',' or ']'");
+            }
+        }
+    }
+
+    /**
+     * Skip the next value of a strict text.
+     * 
+     * @throws JSONException If syntax error or a duplicated key.
+     */
+    private void skipStrictValue() throws JSONException {
+        final char c = nextClean();
+
+        switch (c) {
+            case '"':
+                skipString(c);
+                break;
+            case '{':
+                enterContainer();
+                skipStrictObject();
+                leaveContainer();
+                break;
+            case '[':
+                enterContainer();
+                skipStrictArray();
+                leaveContainer();
+                break;
+            default:
+                skipStrictLiteral(c);
+                break;
+        }
+    }
+
+    /**
+     * Skip the members of an object in a strict text, whose opening brace has been consumed.
+     * 
+     * @see JSONObject#JSONObject(JSONTokenizer)
+     */
+    private void skipStrictObject() throws JSONException {
+        final JSONKeySet keys = this.checkSkippedKeys ? skippedKeys() : null;
+        final int mark = keys == null ? 0 : keys.open();
+        try {
+            char character = nextClean();
+            if (character == '}') {
+                return;
+            }
+            int members = 0;
+            for (;;) {
+                if (character != '"') {
+                    throw strictKeyError(character);
+                }
+                if (keys == null) {
+                    skipString(character);
+                } else {
+                    keys.startKey();
+                    nextKey(character, keys);
+                }
+                checkMemberCount(++members);
+                if (nextClean() != ':') {
+                    throw syntaxError("Expected a ':' after a key");
+                }
+                skipStrictValue();
+                if ((keys != null) && !keys.enter()) {
+                    throw new JSONException("Duplicate key \"" + keys.lastKey() + "\"");
+                }
+                switch (nextClean()) {
+                    case ',':
+                        character = nextClean();
+                        break;
+                    case '}':
+                        return;
+                    default:
+                        throw syntaxError("Expected a ',' or '}'");
+                }
+            }
+        } finally {
+            if (keys != null) {
+                keys.close(mark);
+            }
+        }
+    }
+
+    /**
+     * Skip the elements of an array in a strict text, whose opening bracket has been consumed.
+     * 
+     * @see JSONArray#JSONArray(JSONTokenizer)
+     */
+    private void skipStrictArray() throws JSONException {
+        if (nextClean() == ']') {
+            return;
+        }
+        back();
+        int elements = 0;
+        for (;;) {
+            checkElementCount(++elements);
+            skipStrictValue();
+            switch (nextClean()) {
+                case ',':
+                    break;
+                case ']':
+                    return;
+                default:
+                    throw syntaxError("Expected a ',' or ']'");
+            }
+        }
+    }
+
+    /**
+     * Skip the characters up to the next close quote character, as {@link #nextString(char)} would read them.
+     * 
+     * @param quote The quoting character, either " or '
+     * @throws JSONException Unterminated string.
+     */
+    void skipString(final char quote) throws JSONException {
+        int length = 0;
+        for (;;) {
+            if (!this.usePrevious) {
+                final int start = this.offset + (int) this.index;
+                final int run = scanStringRun(start, quote);
+                if (run > 0) {
+                    if (run > this.maxStringLength - length) {
+                        throw stringLengthError(start, length);
+                    }
+                    advanceRun(run, this.buffer[start + run - 1]);
+                    length += run;
+                }
+            }
+            final char c = next();
+            if (c == quote) {
+                return;
+            }
+            switch (c) {
+                case 0:
+                case '\n':
+                case '\r':
+                    throw syntaxError("Unterminated string");
+                case '\\':
+                    skipEscape();
+                    break;
+                default:
+                    checkStringCharacter(c);
+                    break;
+            }
+            if (++length > this.maxStringLength) {
+                throw stringLengthError();
+            }
+        }
+    }
+
+    /**
+     * Skip unquoted text, as {@link #nextUnquotedValue(char)} would read it.
+     * 
+     * @param c The first character of the text, already consumed
+     * @throws JSONException If there is no text.
+     */
+    void skipUnquotedText(final char c) throws JSONException {
+        if (!isUnquotedTextChar(c)) {
+            back();
+            throw syntaxError("Missing value");
+        }
+        long length = 0;
+        char next;
+        do {
+            length++;
+            next = next();
+        } while (isUnquotedTextChar(next));
+        back();
+        checkValueLength(length);
+    }
+
+    /**
+     * Parse the next value, reporting it to a handler instead of building JSONObject and JSONArray nodes. The grammar, including the lenient forms,
+     * and the syntax errors are those of the JSONObject and JSONArray constructors; duplicated keys are not detected.
+     * 
+     * @param handler receiver of the parse events
+     * @throws JSONException If syntax error, or if the handler abandons the parse.
+     */
+    void nextValue(final JSONHandler handler) throws JSONException {
+        if (this.strict) {
+            nextStrictValue(handler);
+            return;
+        }
+        final char c = nextClean();
+
+        switch (c) {
+            case '"':
+            case '\'':
+                handler.value(nextString(c));
+                break;
+            case '{':
+                enterContainer();
+                nextObject(handler);
+                leaveContainer();
+                break;
+            case '[':
+                enterContainer();
+                nextArray(handler, ']');
+                leaveContainer();
+                break;
+            case '(':
+                enterContainer();
+                nextArray(handler, ')');
+                leaveContainer();
                 break;
             default:
+                handler.value(nextUnquotedValue(c));
                 break;
         }
+    }
+
+    /**
+     * Report the members of an object whose opening brace has been consumed.
+     * 
+     * @see JSONObject#JSONObject(JSONTokenizer)
+     */
+    private void nextObject(final JSONHandler handler) throws JSONException {
+        char character;
+        int members = 0;
+
+        handler.startObject();
+        for (;;) {
+            character = nextClean();
+            switch (character) {
+                case 0:
+                    throw syntaxError("A JSONObject text must end with '}'");
+                case '}':
+                    handler.endObject();
+                    return;
+                default:
+                    back();
+                    final String key = nextKey();
+                    checkMemberCount(++members);
+                    handler.key(key);
+            }
+
+            /*
+             * The key is followed by ':'. We will also tolerate '=' or '=>'.
+             */
+
+            character = nextClean();
+            if (character == '=') {
+                if (next() != '>') {
+                    back();
+                }
+            } else if (character != ':') {
+                throw syntaxError("Expected a ':' after a key");
+            }
+            nextValue(handler);
 
-        if (rv == null) {
             /*
-             * Handle unquoted text. This could be the values true, false, or null, or it can be a number. An implementation (such as this one) is
-             * allowed to also accept non-standard forms.
-             * 
-             * Accumulate characters until we reach the end of the text or a formatting character.
+             * Pairs are separated by ','. We will also tolerate ';'.
              */
 
-            final StringBuilder sb = new StringBuilder();
-            while ((c >= ' ') && (",:]}/\\\"[{;=#".indexOf(c) < 0)) {
-                sb.append(c);
+            switch (nextClean()) {
+                case ';':
+                case ',':
+                    if (nextClean() == '}') {
+                        handler.endObject();
+                        return;
+                    }
+                    back();
+                    break;
+                case '}':
+                    handler.endObject();
+                    return;
+                default:
+                    throw syntaxError("Expected a ',' or '}'");
+            }
+        }
+    }
+
+    /**
+     * Report the elements of an array whose opening bracket has been consumed.
+     * 
+     * @param q the character expected to close the array
+     * @see JSONArray#JSONArray(JSONTokenizer)
+     */
+    private void nextArray(final JSONHandler handler, final char q) throws JSONException {
+        handler.startArray();
+        if (nextClean() == ']') {
+            handler.endArray();
+            return;
+        }
+        back();
+        int elements = 0;
+        for (;;) {
+            checkElementCount(++elements);
+            if (nextClean() == ',') {
+                back();
+                handler.value(null);
+            } else {
+                back();
+                nextValue(handler);
+            }
+            final char c = nextClean();
+            switch (c) {
+                case ';':
+                case ',':
+                    if (nextClean() == ']') {
+                        handler.endArray();
+                        return;
+                    }
+                    back();
+                    break;
+                case ']':
+                case ')':
+                    if (q != c) {
+                        throw syntaxError("Expected a '" + q + "'");
+                    }
+                    handler.endArray();
+                    return;
+                default:
+                    throw syntaxError("Expected a ',' or ']'");
+            }
+        }
+    }
+
+    /**
+     * Parse the next value of a strict text, reporting it to a handler.
+     * 
+     * @param handler receiver of the parse events
+     * @throws JSONException If syntax error, or if the handler abandons the parse.
+     */
+    private void nextStrictValue(final JSONHandler handler) throws JSONException {
+        final char c = nextClean();
+
+        switch (c) {
+            case '"':
+                handler.value(nextString(c));
+                break;
+            case '{':
+                enterContainer();
+                nextStrictObject(handler);
+                leaveContainer();
+                break;
+            case '[':
+                enterContainer();
+                nextStrictArray(handler);
+                leaveContainer();
+                break;
+            default:
+                handler.value(nextStrictLiteral(c));
+                break;
+        }
+    }
+
+    /**
+     * Report the members of an object in a strict text, whose opening brace has been consumed.
+     * 
+     * @see JSONObject#JSONObject(JSONTokenizer)
+     */
+    private void nextStrictObject(final JSONHandler handler) throws JSONException {
+        handler.startObject();
+        char character = nextClean();
+        if (character == '}') {
+            handler.endObject();
+            return;
+        }
+        int members = 0;
+        for (;;) {
+            if (character != '"') {
+                throw strictKeyError(character);
+            }
+            final String key = nextKey(character);
+            checkMemberCount(++members);
+            handler.key(key);
+            if (nextClean() != ':') {
+                throw syntaxError("Expected a ':' after a key");
+            }
+            nextStrictValue(handler);
+            switch (nextClean()) {
+                case ',':
+                    character = nextClean();
+                    break;
+                case '}':
+                    handler.endObject();
+                    return;
+                default:
+                    throw syntaxError("Expected a ',' or '}'");
+            }
+        }
+    }
+
+    /**
+     * Report the elements of an array in a strict text, whose opening bracket has been consumed.
+     * 
+     * @see JSONArray#JSONArray(JSONTokenizer)
+     */
+    private void nextStrictArray(final JSONHandler handler) throws JSONException {
+        handler.startArray();
+        if (nextClean() == ']') {
+            handler.endArray();
+            return;
+        }
+        back();
+        int elements = 0;
+        for (;;) {
+            checkElementCount(++elements);
+            nextStrictValue(handler);
+            switch (nextClean()) {
+                case ',':
+                    break;
+                case ']':
+                    handler.endArray();
+                    return;
+                default:
+                    throw syntaxError("Expected a ',' or ']'");
+            }
+        }
+    }
+
+    /**
+     * Make the error for a character that should start the key of an object member in a strict text.
+     * 
+     * @param c the character, already consumed
+     * @return A JSONException object, suitable for throwing
+     */
+    final JSONException strictKeyError(final char c) {
+        return syntaxError(c == 0 ? "A JSONObject text must end with '}'" : "Expected a key in double quotes");
+    }
+
+    /**
+     * Read a number, true, false or null, as standard JSON writes them, without the unquoted text fallback of the lenient grammar.
+     * 
+     * @param c The first character of the value, already consumed
+     * @return A Boolean, Number or the JSONObject.NULL_OBJECT.
+     * @throws JSONException If there is no value, or it is not standard JSON.
+     */
+    final Object nextStrictLiteral(final char c) throws JSONException {
+        Object result;
+        switch (c) {
+            case 't':
+                nextStrictWord("true");
+                result = Boolean.TRUE;
+                break;
+            case 'f':
+                nextStrictWord("false");
+                result = Boolean.FALSE;
+                break;
+            case 'n':
+                nextStrictWord("null");
+                result = JSONObject.NULL_OBJECT;
+                break;
+            default:
+                if ((c != '-') && ((c < '0') || (c > '9'))) {
+                    back();
+                    throw syntaxError("Missing value");
+                }
+                result = nextStrictNumber(c);
+                break;
+        }
+        return result;
+    }
+
+    /**
+     * Read the rest of one of the words true, false and null.
+     * 
+     * @param word the word, whose first character has been consumed
+     * @throws JSONException If the word does not follow.
+     */
+    private void nextStrictWord(final String word) throws JSONException {
+        for (int i = 1; i < word.length(); i++) {
+            if (next() != word.charAt(i)) {
+                throw syntaxError("Expected '" + word + "'");
+            }
+        }
+    }
+
+    /**
+     * Read a number in the standard grammar: an optional minus, an integer without leading zeros, an optional fraction and an optional exponent.
+     * Integers of up to 18 digits are accumulated as they are read, so they need no text at all; anything else is collected and converted as
+     * {@link JSONObject#stringToValue(String)} would convert it.
+     * 
+     * @param first The first character of the number, a minus or a digit, already consumed
+     * @return An Integer, Long or Double, or the text of an integer too big for a Long, as the lenient grammar gives it.
+     * @throws JSONException If the number is malformed.
+     */
+    private Object nextStrictNumber(final char first) throws JSONException {
+        final long start = this.index - 1;
+        final boolean negative = first == '-';
+        char c = negative ? next() : first;
+        if ((c < '0') || (c > '9')) {
+            throw syntaxError("Invalid number");
+        }
+
+        // accumulated negatively, like Long.parseLong, until the digits could overflow
+        long value = 0;
+        StringBuilder text = null;
+        if (c == '0') {
+            c = next();
+        } else {
+            int digits = 0;
+            while ((c >= '0') && (c <= '9')) {
+                if (digits == MAX_EXACT_DIGITS) {
+                    text = numberText(negative, value);
+                }
+                if (text == null) {
+                    value = value * 10 - (c - '0');
+                } else {
+                    text.append(c);
+                }
+                digits++;
                 c = next();
             }
-            back();
+        }
+        if (c == '.') {
+            text = text == null ? numberText(negative, value) : text;
+            c = nextStrictDigits(text.append(c), next());
+        }
+        if ((c == 'e') || (c == 'E')) {
+            text = text == null ? numberText(negative, value) : text;
+            text.append(c);
+            c = next();
+            if ((c == '+') || (c == '-')) {
+                text.append(c);
+                c = next();
+            }
+            c = nextStrictDigits(text, c);
+        }
+        back();
+        checkValueLength(this.index - start);
+
+        if (text != null) {
+            return JSONObject.stringToValue(text.toString());
+        }
+        if (!negative) {
+            value = -value;
+        }
+        if (value == (int) value) {
+            return Integer.valueOf((int) value);
+        }
+        return Long.valueOf(value);
+    }
+
+    /**
+     * Read one or more digits into the text of a number.
+     * 
+     * @param text the text so far
+     * @param first the character that should be the first digit, already consumed
+     * @return the character after the digits, already consumed
+     * @throws JSONException If there is no digit.
+     */
+    private char nextStrictDigits(final StringBuilder text, final char first) throws JSONException {
+        char c = first;
+        if ((c < '0') || (c > '9')) {
+            throw syntaxError("Invalid number");
+        }
+        do {
+            text.append(c);
+            c = next();
+        } while ((c >= '0') && (c <= '9'));
+        return c;
+    }
+
+    /**
+     * @param negative whether the number has a minus sign
+     * @param value the negated value of the integer digits read so far
+     * @return the text of the number so far
+     */
+    private static StringBuilder numberText(final boolean negative, final long value) {
+        final StringBuilder text = new StringBuilder(32);
+        if (negative) {
+            text.append('-');
+        }
+        return text.append(-value);
+    }
+
+    /**
+     * Skip a value of a strict text that is not a string, an object or an array, as {@link #nextStrictLiteral(char)} would read it.
+     * 
+     * @param c The first character of the value, already consumed
+     * @throws JSONException If there is no valid value.
+     */
+    private void skipStrictLiteral(final char c) throws JSONException {
+        switch (c) {
+            case 't':
+                nextStrictWord("true");
+                break;
+            case 'f':
+                nextStrictWord("false");
+                break;
+            case 'n':
+                nextStrictWord("null");
+                break;
+            default:
+                if ((c != '-') && ((c < '0') || (c > '9'))) {
+                    back();
+                    throw syntaxError("Missing value");
+                }
+                skipStrictNumber(c);
+                break;
+        }
+    }
 
-            final String s = sb.toString().trim();
-            if ("".equals(s)) {
-                throw syntaxError("Missing value");
+    /**
+     * Skip a number in the standard grammar, as {@link #nextStrictNumber(char)} would read it, without converting it.
+     * 
+     * @param first The first character of the number, a minus or a digit, already consumed
+     * @throws JSONException If the number is malformed.
+     */
+    private void skipStrictNumber(final char first) throws JSONException {
+        final long start = this.index - 1;
+        char c = first == '-' ? next() : first;
+        if ((c < '0') || (c > '9')) {
+            throw syntaxError("Invalid number");
+        }
+        if (c == '0') {
+            c = next();
+        } else {
+            do {
+                c = next();
+            } while ((c >= '0') && (c <= '9'));
+        }
+        if (c == '.') {
+            c = skipStrictDigits(next());
+        }
+        if ((c == 'e') || (c == 'E')) {
+            c = next();
+            if ((c == '+') || (c == '-')) {
+                c = next();
             }
-            rv = JSONObject.stringToValue(s);
+            c = skipStrictDigits(c);
         }
+        back();
+        checkValueLength(this.index - start);
+    }
 
-        return rv;
+    /**
+     * Skip one or more digits of a number.
+     * 
+     * @param first the character that should be the first digit, already consumed
+     * @return the character after the digits, already consumed
+     * @throws JSONException If there is no digit.
+     */
+    private char skipStrictDigits(final char first) throws JSONException {
+        char c = first;
+        if ((c < '0') || (c > '9')) {
+            throw syntaxError("Invalid number");
+        }
+        do {
+            c = next();
+        } while ((c >= '0') && (c <= '9'));
+        return c;
+    }
+
+    /**
+     * Get the value of unquoted text. This could be the values true, false, or null, or it can be a number. An implementation (such as this one) is
+     * allowed to also accept non-standard forms, which are returned as a String.
+     * 
+     * @param c The first character of the text, already consumed
+     * @return A Boolean, Number, String or the JSONObject.NULL_OBJECT.
+     * @throws JSONException If there is no text.
+     */
+    final Object nextUnquotedValue(final char c) throws JSONException {
+        /*
+         * Accumulate characters until we reach the end of the text or a formatting character.
+         */
+        final String text = nextUnquotedText(c);
+        checkValueLength(text.length());
+        final String s = text.trim();
+        if ("".equals(s)) {
+            throw syntaxError("Missing value");
+        }
+        return JSONObject.stringToValue(s);
+    }
+
+    /**
+     * Return the unquoted text starting with the character just read, up to the end of the input or a formatting character. The tokenizer is left
+     * backed up onto the character that ended the text.
+     * 
+     * @param c The first character of the text, already consumed
+     * @return the text, untrimmed, or "" if <code>c</code> cannot start unquoted text
+     * @throws JSONException if the input cannot be read
+     */
+    String nextUnquotedText(final char c) throws JSONException {
+        int run = 0;
+        final int start = this.offset + (int) this.index - 1;
+        if (isUnquotedTextChar(c)) {
+            run = 1 + scanUnquotedRun(start + 1);
+            if (run > 1) {
+                advanceRun(run - 1, this.buffer[start + run - 1]);
+            }
+            next();
+        }
+        back();
+        return run == 0 ? "" : new String(this.buffer, start, run);
+    }
+
+    /**
+     * Count the characters from <code>start</code> that belong to the same unquoted text.
+     * 
+     * @param start absolute buffer index to scan from
+     * @return the length of the run
+     */
+    private int scanUnquotedRun(final int start) {
+        final char[] buf = this.buffer;
+        final int end = this.offset + this.length;
+        int i = start;
+        while ((i < end) && isUnquotedTextChar(buf[i])) {
+            i++;
+        }
+        return i - start;
+    }
+
+    /**
+     * @param c character to test
+     * @return true if the character can appear in unquoted text
+     */
+    static boolean isUnquotedTextChar(final char c) {
+        return (c >= ' ') && ((c >= UNQUOTED_TEXT_DELIMITERS.length) || !UNQUOTED_TEXT_DELIMITERS[c]);
     }
 
     /**
@@ -289,6 +1927,12 @@ public class JSONTokenizer {
      */
     @Override
     public String toString() {
-        return " at " + index + " [character " + this.character + " line " + this.line + "]";
+        final long consumed = this.usePrevious ? this.index + 1 : this.index;
+        final JSONPosition position = positionAfter(consumed);
+        long character = consumed == this.returnRereadAt ? 1 : position.getCharacter();
+        if (this.usePrevious) {
+            character -= 1;
+        }
+        return " at " + index + " [character " + character + " line " + (position.getLine() + this.lineBreaksReread) + "]";
     }
 }
\ No newline at end of file
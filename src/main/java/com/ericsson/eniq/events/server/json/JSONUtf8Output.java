@@ -0,0 +1,250 @@
+package com.ericsson.eniq.events.server.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Package scope internal class
+ * 
+ * An Appendable that encodes the characters appended to it as UTF-8 into a fixed size byte buffer, and writes the buffer out to an OutputStream or
+ * a WritableByteChannel each time it fills up, so a text of any length is written in the memory of the buffer.
+ * <p/>
+ * The bytes are those that String.getBytes("UTF-8") would give for the whole text: a surrogate pair is encoded as one four byte character, even if
+ * its halves are appended separately, and an unpaired surrogate is encoded as '?'.
+ * 
+ * @see JSONWriter
+ */
+final class JSONUtf8Output implements Appendable {
+
+    private final OutputStream stream;
+
+    private final WritableByteChannel channel;
+
+    private static final byte[] NO_BYTES = new byte[0];
+
+    /**
+     * The buffer, taken from the {@link JSONBufferPool} and given back when the output is finished. It may be longer than the size asked for.
+     */
+    private byte[] bytes;
+
+    /**
+     * Number of bytes of the buffer in use before it is written out.
+     */
+    private int limit;
+
+    /**
+     * Number of bytes in the buffer.
+     */
+    private int count;
+
+    /**
+     * High surrogate appended last, waiting for the low surrogate that completes it, or 0.
+     */
+    private char highSurrogate;
+
+    /**
+     * Number of bytes after which the stream is flushed, or 0 to flush it only when asked.
+     */
+    private int flushInterval;
+
+    /**
+     * Number of bytes written out since the stream was last flushed.
+     */
+    private long unflushed;
+
+    private boolean finished;
+
+    /**
+     * @param stream destination of the bytes
+     * @param size size of the buffer, at least 4
+     */
+    JSONUtf8Output(final OutputStream stream, final int size) {
+        this.stream = stream;
+        this.channel = null;
+        this.bytes = JSONBufferPool.SHARED.takeBytes(size);
+        this.limit = size;
+    }
+
+    /**
+     * @param channel destination of the bytes
+     * @param size size of the buffer, at least 4
+     */
+    JSONUtf8Output(final WritableByteChannel channel, final int size) {
+        this.stream = null;
+        this.channel = channel;
+        this.bytes = JSONBufferPool.SHARED.takeBytes(size);
+        this.limit = size;
+    }
+
+    public Appendable append(final CharSequence csq) throws IOException {
+        final CharSequence s = csq == null ? "null" : csq;
+        return append(s, 0, s.length());
+    }
+
+    public Appendable append(final CharSequence csq, final int start, final int end) throws IOException {
+        final CharSequence s = csq == null ? "null" : csq;
+        for (int i = start; i < end; i++) {
+            final char c = s.charAt(i);
+            if ((c < 0x80) && (this.highSurrogate == 0) && (this.count < this.limit)) {
+                this.bytes[this.count++] = (byte) c;
+            } else {
+                append(c);
+            }
+        }
+        return this;
+    }
+
+    public Appendable append(final char c) throws IOException {
+        if (this.highSurrogate != 0) {
+            final char high = this.highSurrogate;
+            this.highSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                final int code = Character.toCodePoint(high, c);
+                reserve(4);
+                this.bytes[this.count++] = (byte) (0xf0 | (code >> 18));
+                this.bytes[this.count++] = (byte) (0x80 | ((code >> 12) & 0x3f));
+                this.bytes[this.count++] = (byte) (0x80 | ((code >> 6) & 0x3f));
+                this.bytes[this.count++] = (byte) (0x80 | (code & 0x3f));
+                return this;
+            }
+            reserve(1);
+            this.bytes[this.count++] = '?';
+        }
+        if (c < 0x80) {
+            reserve(1);
+            this.bytes[this.count++] = (byte) c;
+        } else if (c < 0x800) {
+            reserve(2);
+            this.bytes[this.count++] = (byte) (0xc0 | (c >> 6));
+            this.bytes[this.count++] = (byte) (0x80 | (c & 0x3f));
+        } else if (Character.isHighSurrogate(c)) {
+            this.highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            reserve(1);
+            this.bytes[this.count++] = '?';
+        } else {
+            reserve(3);
+            this.bytes[this.count++] = (byte) (0xe0 | (c >> 12));
+            this.bytes[this.count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+            this.bytes[this.count++] = (byte) (0x80 | (c & 0x3f));
+        }
+        return this;
+    }
+
+    /**
+     * Make room in the buffer, writing it out if necessary.
+     * 
+     * @param length number of bytes needed
+     * @throws IOException If the bytes cannot be written.
+     */
+    private void reserve(final int length) throws IOException {
+        if (this.count + length > this.limit) {
+            drain();
+        }
+    }
+
+    /**
+     * Append text that is already encoded, such as the text kept by a {@link JSONTextCache}. Bytes that do not fit in the buffer are written out
+     * straight from the array.
+     * 
+     * @param encoded UTF-8 bytes of whole characters
+     * @throws IOException If the bytes cannot be written.
+     */
+    void write(final byte[] encoded) throws IOException {
+        if (this.highSurrogate != 0) {
+            this.highSurrogate = 0;
+            reserve(1);
+            this.bytes[this.count++] = '?';
+        }
+        if (encoded.length > this.limit - this.count) {
+            drain();
+            if (encoded.length > this.limit) {
+                write(encoded, encoded.length);
+                return;
+            }
+        }
+        System.arraycopy(encoded, 0, this.bytes, this.count, encoded.length);
+        this.count += encoded.length;
+    }
+
+    /**
+     * Write out the bytes in the buffer and empty it.
+     * 
+     * @throws IOException If the bytes cannot be written.
+     */
+    private void drain() throws IOException {
+        if (this.finished) {
+            throw new IOException("Text written after the output was finished");
+        }
+        if (this.count > 0) {
+            write(this.bytes, this.count);
+            this.count = 0;
+        }
+    }
+
+    /**
+     * @param source the bytes to write out
+     * @param length number of bytes, from the start of the array
+     * @throws IOException If the bytes cannot be written.
+     */
+    private void write(final byte[] source, final int length) throws IOException {
+        if (this.stream != null) {
+            this.stream.write(source, 0, length);
+            this.unflushed += length;
+            if ((this.flushInterval > 0) && (this.unflushed >= this.flushInterval)) {
+                this.stream.flush();
+                this.unflushed = 0;
+            }
+        } else {
+            final ByteBuffer buffer = ByteBuffer.wrap(source, 0, length);
+            while (buffer.hasRemaining()) {
+                this.channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Write out everything appended so far, apart from a high surrogate still waiting for its other half, and flush the stream.
+     * 
+     * @throws IOException If the bytes cannot be written.
+     */
+    void flush() throws IOException {
+        if (!this.finished) {
+            drain();
+        }
+        if (this.stream != null) {
+            this.stream.flush();
+            this.unflushed = 0;
+        }
+    }
+
+    /**
+     * Write out everything appended so far and give the buffer back to the pool, after which nothing more can be appended. The stream is not
+     * flushed.
+     * 
+     * @throws IOException If the bytes cannot be written, in which case the buffer is still given back.
+     */
+    void finish() throws IOException {
+        if (this.finished) {
+            return;
+        }
+        try {
+            drain();
+        } finally {
+            this.finished = true;
+            JSONBufferPool.SHARED.giveBytes(this.bytes);
+            this.bytes = NO_BYTES;
+            this.limit = 0;
+            this.count = 0;
+        }
+    }
+
+    /**
+     * @param flushInterval number of bytes written out after which the stream is flushed, or 0 to flush it only when asked
+     */
+    void setFlushInterval(final int flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+}
@@ -0,0 +1,406 @@
+package com.ericsson.eniq.events.server.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * A generator of JSON text, which encodes the text as UTF-8 straight into a reusable byte buffer and writes the buffer out to an OutputStream or a
+ * WritableByteChannel each time it fills up. A response of any size is written in the memory of the buffer, without first building a JSONObject
+ * tree, the String of its text and the bytes of the String:
+ * 
+ * <pre>
+ * final JSONWriter writer = new JSONWriter(outputStream);
+ * writer.beginObject().name(&quot;id&quot;).value(&quot;GRID_1&quot;).name(&quot;rows&quot;).beginArray();
+ * for (final Row row : rows) {
+ *     writer.beginArray().value(row.getName()).value(row.getCount()).endArray();
+ * }
+ * writer.endArray().endObject().flush();
+ * </pre>
+ * 
+ * Strings are quoted as by {@link JSONObject#quote(String)} and numbers are written as by {@link JSONObject#numberToString(Number)}, so a
+ * JSONObject or JSONArray written with {@link #value(Object)} gives exactly the bytes of its <code>toString</code> text. The writer checks that the
+ * calls make a single well formed value, but does not check objects for duplicated names.
+ * <p/>
+ * The text can be compressed as it is written, see {@link JSONCompression}, in which case {@link #finish()} must be called once the text is
+ * complete. Calling it for uncompressed text as well lets the next writer reuse the buffer.
+ * <p/>
+ * A JSONWriter is not thread safe. The stream or channel is not closed.
+ */
+public class JSONWriter {
+
+    /**
+     * Number of bytes buffered before they are written out.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    private final JSONUtf8Output out;
+
+    /**
+     * The stream compressing the text, or null if it is not compressed.
+     */
+    private final DeflaterOutputStream compressor;
+
+    private final Deflater deflater;
+
+    /**
+     * The opening character of each object and array that is open.
+     */
+    private char[] stack = new char[16];
+
+    private int depth;
+
+    /**
+     * Set while the innermost object or array has no members or elements.
+     */
+    private boolean first = true;
+
+    /**
+     * Set when a name has been written in the innermost object and its value has not.
+     */
+    private boolean named;
+
+    /**
+     * Set once the top level value has been started.
+     */
+    private boolean started;
+
+    /**
+     * Construct a writer of UTF-8 text to a stream.
+     * 
+     * @param stream the destination
+     */
+    public JSONWriter(final OutputStream stream) {
+        this(new JSONUtf8Output(stream, BUFFER_SIZE), null, null);
+    }
+
+    /**
+     * Construct a writer of UTF-8 text to a channel.
+     * 
+     * @param channel the destination
+     */
+    public JSONWriter(final WritableByteChannel channel) {
+        this(new JSONUtf8Output(channel, BUFFER_SIZE), null, null);
+    }
+
+    /**
+     * Construct a writer of compressed UTF-8 text to a stream.
+     * 
+     * @param stream the destination
+     * @param compression the compression
+     */
+    public JSONWriter(final OutputStream stream, final JSONCompression compression) {
+        this(stream, compression, BUFFER_SIZE);
+    }
+
+    /**
+     * Construct a writer of compressed UTF-8 text to a channel.
+     * 
+     * @param channel the destination
+     * @param compression the compression
+     */
+    public JSONWriter(final WritableByteChannel channel, final JSONCompression compression) {
+        this(Channels.newOutputStream(channel), compression, BUFFER_SIZE);
+    }
+
+    /**
+     * @param stream the destination
+     * @param bufferSize number of bytes buffered, at least 4
+     */
+    JSONWriter(final OutputStream stream, final int bufferSize) {
+        this(new JSONUtf8Output(stream, bufferSize), null, null);
+    }
+
+    /**
+     * @param stream the destination
+     * @param compression the compression
+     * @param bufferSize number of bytes buffered, at least 4
+     */
+    JSONWriter(final OutputStream stream, final JSONCompression compression, final int bufferSize) {
+        this.deflater = compression.createDeflater();
+        this.compressor = compression.createStream(stream, this.deflater);
+        this.out = new JSONUtf8Output(this.compressor, bufferSize);
+    }
+
+    private JSONWriter(final JSONUtf8Output out, final DeflaterOutputStream compressor, final Deflater deflater) {
+        this.out = out;
+        this.compressor = compressor;
+        this.deflater = deflater;
+    }
+
+    /**
+     * Set the flush points of the text: the stream is flushed, and compressed text is sync flushed, each time at least this many more bytes have
+     * been written out to it, so that a reader can use the text written so far without waiting for the whole of it. A channel has no flush, and
+     * takes every byte as it is written. By default the stream is only flushed by {@link #flush()}.
+     * 
+     * @param bytes number of bytes between flush points, or 0 for none
+     * @return this.
+     */
+    public JSONWriter setFlushInterval(final int bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("Invalid flush interval " + bytes);
+        }
+        this.out.setFlushInterval(bytes);
+        return this;
+    }
+
+    /**
+     * Begin an object.
+     * 
+     * @return this.
+     * @throws JSONException If a value is not expected here, or if the text cannot be written.
+     */
+    public JSONWriter beginObject() throws JSONException {
+        return begin('{');
+    }
+
+    /**
+     * End the innermost object.
+     * 
+     * @return this.
+     * @throws JSONException If the innermost value open is not an object, or its last name has no value, or if the text cannot be written.
+     */
+    public JSONWriter endObject() throws JSONException {
+        if ((this.depth == 0) || (this.stack[this.depth - 1] != '{') || this.named) {
+            throw new JSONException("Misplaced endObject");
+        }
+        return end('}');
+    }
+
+    /**
+     * Begin an array.
+     * 
+     * @return this.
+     * @throws JSONException If a value is not expected here, or if the text cannot be written.
+     */
+    public JSONWriter beginArray() throws JSONException {
+        return begin('[');
+    }
+
+    /**
+     * End the innermost array.
+     * 
+     * @return this.
+     * @throws JSONException If the innermost value open is not an array, or if the text cannot be written.
+     */
+    public JSONWriter endArray() throws JSONException {
+        if ((this.depth == 0) || (this.stack[this.depth - 1] != '[')) {
+            throw new JSONException("Misplaced endArray");
+        }
+        return end(']');
+    }
+
+    /**
+     * Write the name of the next member of the innermost object, which must be followed by its value.
+     * 
+     * @param name the name
+     * @return this.
+     * @throws JSONException If the name is null, or a name is not expected here, or if the text cannot be written.
+     */
+    public JSONWriter name(final String name) throws JSONException {
+        if (name == null) {
+            throw new JSONException("Null key.");
+        }
+        if ((this.depth == 0) || (this.stack[this.depth - 1] != '{') || this.named) {
+            throw new JSONException("Misplaced name");
+        }
+        try {
+            if (!this.first) {
+                this.out.append(',');
+            }
+            JSONObject.quote(name, this.out);
+            this.out.append(':');
+        } catch (final IOException exception) {
+            throw new JSONException(exception);
+        }
+        this.first = false;
+        this.named = true;
+        return this;
+    }
+
+    /**
+     * Write a string value.
+     * 
+     * @param value the string, or null to write null
+     * @return this.
+     * @throws JSONException If a value is not expected here, or if the text cannot be written.
+     */
+    public JSONWriter value(final String value) throws JSONException {
+        return value((Object) value);
+    }
+
+    /**
+     * Write an integer value.
+     * 
+     * @param value the integer
+     * @return this.
+     * @throws JSONException If a value is not expected here, or if the text cannot be written.
+     */
+    public JSONWriter value(final long value) throws JSONException {
+        beforeValue();
+        try {
+            JSONNumbers.write(value, this.out);
+        } catch (final IOException exception) {
+            throw new JSONException(exception);
+        }
+        return this;
+    }
+
+    /**
+     * Write a number value.
+     * 
+     * @param value the number
+     * @return this.
+     * @throws JSONException If the number is not finite, or a value is not expected here, or if the text cannot be written.
+     */
+    public JSONWriter value(final double value) throws JSONException {
+        if (Double.isInfinite(value) || Double.isNaN(value)) {
+            throw new JSONException("JSON does not allow non-finite numbers.");
+        }
+        beforeValue();
+        try {
+            JSONNumbers.write(value, this.out);
+        } catch (final IOException exception) {
+            throw new JSONException(exception);
+        }
+        return this;
+    }
+
+    /**
+     * Write a boolean value.
+     * 
+     * @param value the boolean
+     * @return this.
+     * @throws JSONException If a value is not expected here, or if the text cannot be written.
+     */
+    public JSONWriter value(final boolean value) throws JSONException {
+        return write(value ? "true" : "false");
+    }
+
+    /**
+     * Write any value as {@link JSONObject#toString()} would write it as the value of a member: null, a Number, a Boolean, a String, a whole
+     * JSONObject or JSONArray tree, or any other object as its quoted <code>toString</code>.
+     * 
+     * @param value the value
+     * @return this.
+     * @throws JSONException If the value contains a number that is not finite, in which case the text written so far is left incomplete, or a
+     *             value is not expected here, or if the text cannot be written.
+     */
+    public JSONWriter value(final Object value) throws JSONException {
+        beforeValue();
+        try {
+            JSONObject.writeValue(JSONLazyValue.resolve(value), this.out);
+        } catch (final IOException exception) {
+            throw new JSONException(exception);
+        }
+        return this;
+    }
+
+    /**
+     * Write out the text buffered so far, and flush the stream. Compressed text is sync flushed, so that all of it can be decompressed.
+     * 
+     * @return this.
+     * @throws JSONException If the text cannot be written.
+     */
+    public JSONWriter flush() throws JSONException {
+        try {
+            this.out.flush();
+        } catch (final IOException exception) {
+            throw new JSONException(exception);
+        }
+        return this;
+    }
+
+    /**
+     * Write out the text buffered so far and, if it is compressed, the end of the compressed stream, and flush the stream. No more text can be
+     * written after this. The buffer is given back to be reused by later writers, and the resources of the compression are released, even if the
+     * text cannot be written.
+     * 
+     * @throws JSONException If the text cannot be written.
+     */
+    public void finish() throws JSONException {
+        try {
+            this.out.finish();
+            if (this.compressor != null) {
+                this.compressor.finish();
+            }
+            this.out.flush();
+        } catch (final IOException exception) {
+            throw new JSONException(exception);
+        } finally {
+            if (this.deflater != null) {
+                this.deflater.end();
+            }
+        }
+    }
+
+    private JSONWriter begin(final char open) throws JSONException {
+        beforeValue();
+        if (this.depth == this.stack.length) {
+            this.stack = Arrays.copyOf(this.stack, this.depth * 2);
+        }
+        this.stack[this.depth++] = open;
+        this.first = true;
+        return append(open);
+    }
+
+    private JSONWriter end(final char close) throws JSONException {
+        this.depth--;
+        this.first = false;
+        return append(close);
+    }
+
+    /**
+     * Write the text of a value that is not an object or an array.
+     * 
+     * @param text the text
+     * @return this.
+     * @throws JSONException If a value is not expected here, or if the text cannot be written.
+     */
+    private JSONWriter write(final String text) throws JSONException {
+        beforeValue();
+        try {
+            this.out.append(text);
+        } catch (final IOException exception) {
+            throw new JSONException(exception);
+        }
+        return this;
+    }
+
+    private JSONWriter append(final char c) throws JSONException {
+        try {
+            this.out.append(c);
+        } catch (final IOException exception) {
+            throw new JSONException(exception);
+        }
+        return this;
+    }
+
+    /**
+     * Check that a value can be written here, and write the comma that separates it from the element before it.
+     * 
+     * @throws JSONException If a value is not expected here, or if the text cannot be written.
+     */
+    private void beforeValue() throws JSONException {
+        if (this.depth == 0) {
+            if (this.started) {
+                throw new JSONException("Misplaced value");
+            }
+            this.started = true;
+        } else if (this.stack[this.depth - 1] == '{') {
+            if (!this.named) {
+                throw new JSONException("Misplaced value");
+            }
+            this.named = false;
+        } else {
+            if (!this.first) {
+                append(',');
+            }
+            this.first = false;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.ericsson.eniq.events.server.json;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class JSONBufferPoolTest {
+
+    @Test
+    public void take_afterGive_expectSameArrayFromSlotThenQueue() {
+        final JSONBufferPool pool = new JSONBufferPool(1, 100, 100);
+        final char[] first = pool.takeChars(10);
+        final char[] second = pool.takeChars(10);
+        final char[] third = pool.takeChars(10);
+        assertNotSame(first, second);
+
+        pool.giveChars(first);
+        pool.giveChars(second);
+        pool.giveChars(third);
+        assertSame(first, pool.takeChars(5));
+        assertSame(second, pool.takeChars(5));
+        assertNotSame(third, pool.takeChars(5));
+    }
+
+    @Test
+    public void take_tooSmallOrTooLargeGiven_expectNewArray() {
+        final JSONBufferPool pool = new JSONBufferPool(1, 100, 100);
+        pool.giveBytes(new byte[101]);
+        assertEquals(64, pool.takeBytes(64).length);
+
+        pool.giveBytes(new byte[32]);
+        assertEquals(64, pool.takeBytes(64).length);
+        final byte[] bytes = pool.takeBytes(64);
+        pool.giveBytes(bytes);
+        assertSame(bytes, pool.takeBytes(64));
+    }
+
+    @Test
+    public void take_otherThread_expectArrayFromSharedQueueOnly() throws Exception {
+        final JSONBufferPool pool = new JSONBufferPool(1, 100, 100);
+        final char[] slot = pool.takeChars(10);
+        final char[] shared = pool.takeChars(10);
+        pool.giveChars(slot);
+        pool.giveChars(shared);
+
+        final char[][] taken = new char[2][];
+        final Thread thread = new Thread() {
+            @Override
+            public void run() {
+                taken[0] = pool.takeChars(10);
+                taken[1] = pool.takeChars(10);
+            }
+        };
+        thread.start();
+        thread.join();
+        assertSame(shared, taken[0]);
+        assertNotSame(slot, taken[1]);
+        assertSame(slot, pool.takeChars(10));
+    }
+
+    @Test
+    public void give_largerThanSlot_expectSharedQueueOnly() throws Exception {
+        final JSONBufferPool pool = new JSONBufferPool(1, 50, 100);
+        final char[] small = pool.takeChars(10);
+        final char[] large = new char[80];
+        pool.giveChars(large);
+        pool.giveChars(small);
+
+        final char[][] taken = new char[1][];
+        final Thread thread = new Thread() {
+            @Override
+            public void run() {
+                taken[0] = pool.takeChars(10);
+            }
+        };
+        thread.start();
+        thread.join();
+        assertSame(large, taken[0]);
+        assertSame(small, pool.takeChars(10));
+    }
+}
@@ -0,0 +1,93 @@
+package com.ericsson.eniq.events.server.json;
+
+import static org.junit.Assert.*;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import com.ericsson.eniq.events.server.test.FileReader;
+
+public class JSONFeederTest {
+
+    @Test
+    public void feed_sampleFileInSmallChunks_expectSameObjectAsWholeText() throws Exception {
+        final InputStream fileInputStream = ClassLoader.getSystemClassLoader().getResourceAsStream(JSONParserTest.JSON_FILE);
+        final String text = FileReader.readInputStream(fileInputStream);
+        final byte[] bytes = text.getBytes("UTF-8");
+
+        final JSONFeeder feeder = new JSONParser().createFeeder();
+        int position = 0;
+        while (position < bytes.length - 7) {
+            assertFalse(feeder.feed(ByteBuffer.wrap(bytes, position, 7)));
+            position += 7;
+        }
+        final ByteBuffer last = ByteBuffer.wrap(bytes, position, bytes.length - position);
+        assertTrue(feeder.feed(last));
+        assertEquals(new JSONObject(text).toString(), feeder.getObject().toString());
+    }
+
+    @Test
+    public void feed_closersInsideStringsAndText_expectCompleteOnlyAtEnd() throws Exception {
+        final JSONFeeder feeder = new JSONParser().createFeeder();
+        assertFalse(feeder.feed(ByteBuffer.wrap("{'a' => \"}]\\\"\", b = ('x'), ".getBytes("UTF-8"))));
+        assertFalse(feeder.isComplete());
+        final ByteBuffer chunk = ByteBuffer.wrap("c : [1,,2]}{\"next\" : 1}".getBytes("UTF-8"));
+        assertTrue(feeder.feed(chunk));
+        assertEquals(11, chunk.position());
+
+        final JSONObject jsonObject = feeder.getObject();
+        assertEquals("}]\"", jsonObject.get("a"));
+        assertEquals(3, jsonObject.getJSONArray("c").length());
+
+        feeder.reset();
+        assertTrue(feeder.feed(chunk));
+        assertEquals(1, feeder.getObject().get("next"));
+    }
+
+    @Test
+    public void feed_syntaxErrorOrTruncatedText_expectSameErrorAsWholeText() throws Exception {
+        final JSONFeeder feeder = new JSONParser().createFeeder();
+        final ByteBuffer chunk = ByteBuffer.wrap("[1, 2 \"x\", 4]".getBytes("UTF-8"));
+        assertTrue(feeder.feed(chunk));
+        assertEquals(7, chunk.position());
+        try {
+            feeder.getArray();
+            fail();
+        } catch (final JSONException expected) {
+            assertEquals("Expected a ',' or ']' at 7 [character 8 line 1]", expected.getMessage());
+        }
+
+        feeder.reset();
+        assertFalse(feeder.feed(ByteBuffer.wrap("{\"a\" : [1".getBytes("UTF-8"))));
+        try {
+            feeder.getObject();
+            fail();
+        } catch (final JSONException expected) {
+            assertEquals("The JSON text is not complete", expected.getMessage());
+        }
+        feeder.endOfInput();
+        try {
+            feeder.getObject();
+            fail();
+        } catch (final JSONException expected) {
+            assertTrue(expected.getMessage().startsWith("Expected a ',' or ']'"));
+        }
+    }
+
+    @Test
+    public void feed_textOverInputLimit_expectCompleteAtOnceAndError() throws Exception {
+        final JSONFeeder feeder = new JSONParser().setMaxInputLength(10).createFeeder();
+        assertFalse(feeder.feed(ByteBuffer.wrap("{\"a\" : ".getBytes("UTF-8"))));
+        final ByteBuffer chunk = ByteBuffer.wrap("[1, 2, 3, 4]}".getBytes("UTF-8"));
+        assertTrue(feeder.feed(chunk));
+        assertEquals(4, chunk.position());
+        try {
+            feeder.getObject();
+            fail();
+        } catch (final JSONException expected) {
+            assertEquals("Input longer than 10 bytes", expected.getMessage());
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.ericsson.eniq.events.server.json;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+import org.junit.Test;
+
+public class JSONGridWriterTest {
+
+    private static final String[] LABELS = { "ID", "COUNT", "RATE", "ACTIVE", "NAME", "START", "AMOUNT" };
+
+    private static final int[] TYPES = { Types.INTEGER, Types.BIGINT, Types.DOUBLE, Types.BOOLEAN, Types.VARCHAR, Types.TIMESTAMP, Types.DECIMAL };
+
+    private static final Object[][] ROWS = {
+            { 1, 9223372036854775807L, 0.25, true, "cell \"A\"", Timestamp.valueOf("2011-02-14 10:15:00"), new BigDecimal("1.50") },
+            { 2, null, 100.0, null, null, null, null } };
+
+    @Test
+    public void writeRows_resultSet_expectRowObjectsInColumnOrder() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final JSONWriter writer = new JSONWriter(bytes);
+        writer.beginObject().name("success").value("true").name("data");
+        assertEquals(2, new JSONGridWriter(writer).writeRows(resultSet(ROWS)));
+        writer.endObject().flush();
+
+        assertEquals("{\"success\":\"true\",\"data\":["
+                + "{\"ID\":1,\"COUNT\":9223372036854775807,\"RATE\":0.25,\"ACTIVE\":true,\"NAME\":\"cell \\\"A\\\"\","
+                + "\"START\":\"2011-02-14 10:15:00.0\",\"AMOUNT\":1.5},"
+                + "{\"ID\":2,\"COUNT\":null,\"RATE\":100,\"ACTIVE\":null,\"NAME\":null,\"START\":null,\"AMOUNT\":null}]}", bytes.toString("UTF-8"));
+    }
+
+    @Test
+    public void writeRows_cellValues_expectSameTextAsJSONObjectOfGetObject() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final JSONWriter writer = new JSONWriter(bytes);
+        new JSONGridWriter(writer).writeRows(resultSet(new Object[][] { ROWS[0] }));
+        writer.flush();
+
+        final JSONObject row = new JSONArray(bytes.toString("UTF-8")).getJSONObject(0);
+        for (int i = 0; i < LABELS.length; i++) {
+            assertEquals(JSONObject.valueToString(ROWS[0][i]), JSONObject.valueToString(row.get(LABELS[i])));
+        }
+    }
+
+    @Test
+    public void writeRows_emptyResultOrSQLException_expectEmptyArrayOrCause() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final JSONWriter writer = new JSONWriter(bytes);
+        assertEquals(0, new JSONGridWriter(writer).writeRows(resultSet(new Object[0][])));
+        writer.flush();
+        assertEquals("[]", bytes.toString("UTF-8"));
+
+        try {
+            new JSONGridWriter(new JSONWriter(new ByteArrayOutputStream())).writeRows(resultSet(new Object[][] { { "not a number" } }));
+            fail();
+        } catch (final JSONException expected) {
+            assertTrue(expected.getCause() instanceof SQLException);
+        }
+    }
+
+    /**
+     * @param rows the values of the rows, with the labels and types of the test columns
+     * @return a ResultSet stub over the rows
+     */
+    private static ResultSet resultSet(final Object[][] rows) {
+        final ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(JSONGridWriterTest.class.getClassLoader(),
+                new Class<?>[] { ResultSetMetaData.class }, new InvocationHandler() {
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                        if ("getColumnCount".equals(method.getName())) {
+                            return LABELS.length;
+                        }
+                        final int column = (Integer) args[0] - 1;
+                        return "getColumnType".equals(method.getName()) ? (Object) TYPES[column] : LABELS[column];
+                    }
+                });
+        return (ResultSet) Proxy.newProxyInstance(JSONGridWriterTest.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+                new InvocationHandler() {
+
+                    private int row = -1;
+
+                    private Object last;
+
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) throws SQLException {
+                        final String name = method.getName();
+                        if ("getMetaData".equals(name)) {
+                            return metaData;
+                        }
+                        if ("next".equals(name)) {
+                            return ++this.row < rows.length;
+                        }
+                        if ("wasNull".equals(name)) {
+                            return this.last == null;
+                        }
+                        this.last = rows[this.row][(Integer) args[0] - 1];
+                        if ("getObject".equals(name) || (this.last == null) && !method.getReturnType().isPrimitive()) {
+                            return this.last;
+                        }
+                        if ("getLong".equals(name)) {
+                            return this.last == null ? 0L : ((Number) number(this.last)).longValue();
+                        }
+                        if ("getDouble".equals(name)) {
+                            return this.last == null ? 0.0 : ((Number) number(this.last)).doubleValue();
+                        }
+                        if ("getBoolean".equals(name)) {
+                            return this.last == null ? false : this.last;
+                        }
+                        return this.last;
+                    }
+
+                    private Object number(final Object value) throws SQLException {
+                        if (!(value instanceof Number)) {
+                            throw new SQLException("Not a number: " + value);
+                        }
+                        return value;
+                    }
+                });
+    }
+}
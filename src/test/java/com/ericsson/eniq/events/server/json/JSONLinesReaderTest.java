@@ -0,0 +1,167 @@
+package com.ericsson.eniq.events.server.json;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+public class JSONLinesReaderTest {
+
+    private static final int RECORDS = 50000;
+
+    private static byte[] lines(final int records) throws Exception {
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < records; i++) {
+            text.append("{\"id\" : ").append(i).append(", \"name\" : \"row ").append(i).append("\"}");
+            text.append(i % 3 == 0 ? "\r\n" : "\n");
+            if (i % 1000 == 0) {
+                text.append("  \n");
+            }
+        }
+        return text.toString().getBytes("UTF-8");
+    }
+
+    @Test
+    public void read_ordered_expectAllRecordsInLineOrder() throws Exception {
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final List<Integer> ids = new ArrayList<Integer>();
+            final JSONLinesReader reader = new JSONParser().setParallel(pool).createLinesReader(new ByteArrayInputStream(lines(RECORDS)))
+                    .setMaxPendingBatches(2);
+            final long count = reader.read(new JSONRecordConsumer() {
+                public void record(final long line, final JSONObject record) throws JSONException {
+                    ids.add((Integer) record.get("id"));
+                    assertEquals("row " + record.get("id"), record.getString("name"));
+                }
+            });
+            assertEquals(RECORDS, count);
+            for (int i = 0; i < RECORDS; i++) {
+                assertEquals(i, ids.get(i).intValue());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void read_orderedManyBatches_expectConsumedBatchesReleased() throws Exception {
+        final int records = 400000;
+        final InputStream lines = new InputStream() {
+            private int record;
+
+            private byte[] line = new byte[0];
+
+            private int position;
+
+            @Override
+            public int read() {
+                if (this.position == this.line.length) {
+                    if (this.record == records) {
+                        return -1;
+                    }
+                    this.line = ("{\"id\":" + this.record++ + "}\n").getBytes();
+                    this.position = 0;
+                }
+                return this.line[this.position++];
+            }
+        };
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            final List<WeakReference<JSONObject>> first = new ArrayList<WeakReference<JSONObject>>();
+            final boolean[] released = new boolean[1];
+            new JSONParser().setParallel(pool).createLinesReader(lines).setMaxPendingBatches(2).read(new JSONRecordConsumer() {
+                public void record(final long line, final JSONObject record) {
+                    if (line == 1) {
+                        first.add(new WeakReference<JSONObject>(record));
+                    } else if (line == records) {
+                        for (int i = 0; (i < 10) && (first.get(0).get() != null); i++) {
+                            System.gc();
+                        }
+                        released[0] = first.get(0).get() == null;
+                    }
+                }
+            });
+            assertTrue(released[0]);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void read_unorderedOrWithoutPool_expectAllRecords() throws Exception {
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final List<Integer> ids = new ArrayList<Integer>();
+            final JSONRecordConsumer consumer = new JSONRecordConsumer() {
+                public void record(final long line, final JSONObject record) throws JSONException {
+                    ids.add((Integer) record.get("id"));
+                }
+            };
+            assertEquals(RECORDS, new JSONParser().setParallel(pool).createLinesReader(new ByteArrayInputStream(lines(RECORDS))).setOrdered(false)
+                    .read(consumer));
+            Collections.sort(ids);
+            for (int i = 0; i < RECORDS; i++) {
+                assertEquals(i, ids.get(i).intValue());
+            }
+
+            ids.clear();
+            assertEquals(3, new JSONParser().createLinesReader(new ByteArrayInputStream("{\"id\":0}\n\n{\"id\":1}\n{\"id\":2}".getBytes("UTF-8")))
+                    .read(consumer));
+            assertEquals(3, ids.size());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void read_syntaxError_expectLineNumberAndEarlierRecordsDelivered() throws Exception {
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            final List<Long> lines = new ArrayList<Long>();
+            final byte[] text = "{\"a\" : 1}\n{\"a\" : 2}\n{\"a\" 3}\n{\"a\" : 4}\n".getBytes("UTF-8");
+            try {
+                new JSONParser().setParallel(pool).createLinesReader(new ByteArrayInputStream(text)).read(new JSONRecordConsumer() {
+                    public void record(final long line, final JSONObject record) {
+                        lines.add(line);
+                    }
+                });
+                fail();
+            } catch (final JSONException expected) {
+                assertEquals("Line 3: Expected a ':' after a key at 6 [character 7 line 1]", expected.getMessage());
+            }
+            assertEquals(2, lines.size());
+            assertEquals(2L, lines.get(1).longValue());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void read_lineOverInputLimit_expectLineNumberAndEarlierRecordsDelivered() throws Exception {
+        final StringBuilder text = new StringBuilder("{\"a\" : 1}\n{\"a\" : 2}\n{\"a\" : \"");
+        for (int i = 0; i < 100000; i++) {
+            text.append('x');
+        }
+        text.append("\"}\n{\"a\" : 4}\n");
+        final List<Long> lines = new ArrayList<Long>();
+        try {
+            new JSONParser().setMaxInputLength(20).createLinesReader(new ByteArrayInputStream(text.toString().getBytes("UTF-8")))
+                    .read(new JSONRecordConsumer() {
+                        public void record(final long line, final JSONObject record) {
+                            lines.add(line);
+                        }
+                    });
+            fail();
+        } catch (final JSONException expected) {
+            assertEquals("Line 3: Input longer than 20 bytes", expected.getMessage());
+        }
+        assertEquals(2, lines.size());
+    }
+}
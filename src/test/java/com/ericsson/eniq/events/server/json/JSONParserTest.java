@@ -2,11 +2,24 @@ package com.ericsson.eniq.events.server.json;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.Test;
 
@@ -80,6 +93,681 @@ public class JSONParserTest {
         return uiMetaData;
     }
 
+    @Test
+    public void testParseSampleJsonFileFromStream() throws JSONException, IOException {
+        final InputStream fileInputStream = ClassLoader.getSystemClassLoader().getResourceAsStream(JSON_FILE);
+        try {
+            final JSONObject uiMetaData = new JSONParser().parseObject(fileInputStream);
+            assertEquals(readSampleJsonFile().toString(), uiMetaData.toString());
+        } finally {
+            fileInputStream.close();
+        }
+    }
+
+    @Test
+    public void testParseSampleJsonFileMapped() throws Exception {
+        final File file = new File(ClassLoader.getSystemResource(JSON_FILE).toURI());
+        final String expected = readSampleJsonFile().toString();
+        assertEquals(expected, new JSONParser().parseObject(file).toString());
+
+        // map in tiny segments so that tokens straddle segment boundaries
+        final FileChannel channel = new FileInputStream(file).getChannel();
+        try {
+            assertEquals(expected, new JSONObject(new JSONMappedTokenizer(channel, 7)).toString());
+        } finally {
+            channel.close();
+        }
+    }
+
+    @Test
+    public void testParseUtf8Bytes() throws Exception {
+        final String text = "{\"name\" : \"caf\u00e9 \u20ac \ud83d\ude00\", 'unquoted' : na\u00efve, \"n\" : 12}";
+        final byte[] bytes = text.getBytes("UTF-8");
+
+        final JSONObject fromArray = new JSONParser().parseObject(bytes, 0, bytes.length);
+        assertEquals("caf\u00e9 \u20ac \ud83d\ude00", fromArray.get("name"));
+        assertEquals("na\u00efve", fromArray.get("unquoted"));
+        assertEquals(12, fromArray.get("n"));
+
+        final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        assertEquals(new JSONObject(text).toString(), new JSONParser().parseObject(direct).toString());
+        assertEquals(0, direct.position());
+    }
+
+    @Test
+    public void testParseUtf8BytesLongStrings() throws Exception {
+        final String text = "[\"a description long enough to be scanned in blocks\ttab \\\"quoted\\\" \u00e9t\u00e9\", 'it\\'s \"x\" in a single quoted string']";
+        final byte[] bytes = text.getBytes("UTF-8");
+        final JSONArray jsonArray = new JSONParser().parseArray(bytes, 0, bytes.length);
+        assertEquals("a description long enough to be scanned in blocks\ttab \"quoted\" \u00e9t\u00e9", jsonArray.get(0));
+        assertEquals("it's \"x\" in a single quoted string", jsonArray.get(1));
+    }
+
+    @Test
+    public void testParseUtf8BytesWithByteOrderMark() throws Exception {
+        final byte[] bytes = "\ufeff[\"a\", \"b\"]".getBytes("UTF-8");
+        final JSONArray jsonArray = new JSONParser().parseArray(new ByteArrayInputStream(bytes));
+        assertEquals("[\"a\",\"b\"]", jsonArray.toString());
+    }
+
+    @Test
+    public void testParseUtf8BytesReportsCharacterPosition() throws Exception {
+        final String text = "{\"\u20ac\" : \"\u20ac}";
+        final byte[] bytes = text.getBytes("UTF-8");
+        try {
+            new JSONParser().parseObject(bytes, 0, bytes.length);
+            fail();
+        } catch (final JSONException expected) {
+            assertEquals("Unterminated string at 11 [character 12 line 1]", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void testValidate() throws Exception {
+        final JSONParser parser = new JSONParser();
+        final String text = "{\"a\" : {\"a\" : 1, \"b\" : [{\"a\" : 2}, {\"a\" : 3}]}, 'b' : [1, 2.5, true, null], c : \"x\\ty\"}";
+        parser.validate(text);
+        final ByteBuffer buffer = ByteBuffer.wrap(text.getBytes("UTF-8"));
+        parser.validate(buffer);
+        assertEquals(0, buffer.position());
+        new JSONParser().setStrict(true).validate("[{\"a\" : -1.5e3, \"b\" : \"\\u00e9\"}, {\"a\" : 0}]");
+
+        // a key is a duplicate once its escapes are processed, as for a JSONObject
+        for (final String duplicated : new String[] { "{\"a\" : {\"x\" : 1, \"y\" : {}, \"\\u0078\" : 2}}", "{\"x\" : 1, 'x' : [{\"x\" : 2}]}" }) {
+            try {
+                parser.validate(duplicated);
+                fail();
+            } catch (final JSONException expected) {
+                assertEquals("Duplicate key \"x\"", expected.getMessage());
+            }
+            try {
+                parser.validate(new ByteArrayInputStream(duplicated.getBytes("UTF-8")));
+                fail();
+            } catch (final JSONException expected) {
+                assertEquals("Duplicate key \"x\"", expected.getMessage());
+            }
+        }
+
+        final String malformed = "{\"a\" : [1, 2 \"x\"]}";
+        try {
+            parser.parseObject(malformed);
+            fail();
+        } catch (final JSONException expected) {
+            try {
+                parser.validate(malformed);
+                fail();
+            } catch (final JSONException same) {
+                assertEquals(expected.getMessage(), same.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testValidateRejectsScalarsAndTextAfterValue() throws Exception {
+        final JSONParser parser = new JSONParser();
+        parser.validate(" [1, 2]\n");
+        for (final String scalar : new String[] { "hello world", "\"s\"", " 12", "null", "" }) {
+            try {
+                parser.validate(scalar);
+                fail(scalar);
+            } catch (final JSONException expected) {
+                assertTrue(expected.getMessage(), expected.getMessage().startsWith("A JSON text must begin with '{' or '[' at "));
+            }
+            try {
+                parser.validate(new ByteArrayInputStream(scalar.getBytes("UTF-8")));
+                fail(scalar);
+            } catch (final JSONException expected) {
+                assertTrue(expected.getMessage(), expected.getMessage().startsWith("A JSON text must begin with '{' or '[' at "));
+            }
+        }
+        for (final String trailing : new String[] { "{} }}}", "[1] [2]", "{\"a\" : 1} x", "{}\u0000garbage", "[1] \u0000" }) {
+            try {
+                parser.validate(trailing);
+                fail(trailing);
+            } catch (final JSONException expected) {
+                assertTrue(expected.getMessage(), expected.getMessage().startsWith("Expected the end of the text at "));
+            }
+            try {
+                parser.validate(new ByteArrayInputStream(trailing.getBytes("UTF-8")));
+                fail(trailing);
+            } catch (final JSONException expected) {
+                assertTrue(expected.getMessage(), expected.getMessage().startsWith("Expected the end of the text at "));
+            }
+        }
+        try {
+            parser.validate(ByteBuffer.wrap("{} }}}".getBytes("UTF-8")));
+            fail();
+        } catch (final JSONException expected) {
+            assertEquals("Expected the end of the text at 4 [character 5 line 1]", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void testValidateRejectsMalformedUnicodeEscapes() throws Exception {
+        final JSONParser parser = new JSONParser();
+        parser.validate("{\"a\" : \"\\u00e9\\uABCD\"}");
+        for (final String text : new String[] { "{\"a\":\"\\uZZZZ\"}", "[\"\\u12G4\"]", "{\"\\u 123\":1}" }) {
+            try {
+                parser.validate(text);
+                fail(text);
+            } catch (final JSONException expected) {
+                assertTrue(expected.getMessage(), expected.getMessage().startsWith("Illegal escape. at "));
+            }
+            try {
+                parser.validate(new ByteArrayInputStream(text.getBytes("UTF-8")));
+                fail(text);
+            } catch (final JSONException expected) {
+                assertTrue(expected.getMessage(), expected.getMessage().startsWith("Illegal escape. at "));
+            }
+        }
+    }
+
+    @Test
+    public void testProjection() throws Exception {
+        final String text = "{\"grids\" : [{\"id\" : \"g1\", \"url\" : \"a/b\", \"columns\" : [{\"header\" : \"Name\", \"width\" : 80}, {'header' : 'Size'}]}, "
+                + "{\"id\" : \"g2\", \"columns\" : [], \"extra\" : {\"dup\" : 1, \"dup\" : 2}}, 5], \"tabs\" : [{\"id\" : \"t1\"}], \"other\" : \"x\"}";
+        final String projected = "{\"grids\":[{\"columns\":[{\"header\":\"Name\"},{\"header\":\"Size\"}],\"id\":\"g1\"},{\"columns\":[],\"id\":\"g2\"}]}";
+        final JSONParser parser = new JSONParser().setProjection("grids[*].id", "grids[*].columns[*].header");
+        assertEquals(projected, normalise(parser.parseObject(text)));
+        assertEquals(projected, normalise(parser.parseObject(new ByteArrayInputStream(text.getBytes("UTF-8")))));
+        assertEquals(projected, normalise(parser.setLazy(true).parseObject(ByteBuffer.wrap(text.getBytes("UTF-8")))));
+
+        // a whole value is built as it is, and paths into the elements of a top level array start with [*]
+        assertEquals("{\"tabs\":[{\"id\":\"t1\"}]}", new JSONParser().setProjection("tabs", "tabs[*].id").parseObject(text).toString());
+        assertEquals("[{\"b\":[1,2]},{}]", new JSONParser().setProjection("[*].b").parseArray("[{\"a\" : 0, \"b\" : [1, 2]}, {}, 3]").toString());
+
+        // syntax errors in the values left out are still reported
+        try {
+            parser.parseObject("{\"other\" : {\"a\" 1}, \"grids\" : []}");
+            fail();
+        } catch (final JSONException expected) {
+            assertEquals("Expected a ':' after a key at 17 [character 18 line 1]", expected.getMessage());
+        }
+        try {
+            new JSONParser().setProjection("grids[0]");
+            fail();
+        } catch (final IllegalArgumentException expected) {
+            assertEquals("Invalid path \"grids[0]\"", expected.getMessage());
+        }
+    }
+
+    /**
+     * @return the text of a value with the members of its objects in order of their keys
+     */
+    private static String normalise(final Object value) throws JSONException {
+        final StringBuilder text = new StringBuilder();
+        if (value instanceof JSONObject) {
+            final JSONObject object = (JSONObject) value;
+            text.append('{');
+            for (final Iterator<Object> keys = object.sortedKeys(); keys.hasNext();) {
+                final String key = (String) keys.next();
+                text.append(text.length() > 1 ? "," : "").append(JSONObject.quote(key)).append(':').append(normalise(object.get(key)));
+            }
+            text.append('}');
+        } else if (value instanceof JSONArray) {
+            final JSONArray array = (JSONArray) value;
+            text.append('[');
+            for (int i = 0; i < array.length(); i++) {
+                text.append(i > 0 ? "," : "").append(normalise(array.get(i)));
+            }
+            text.append(']');
+        } else {
+            text.append(value instanceof String ? JSONObject.quote((String) value) : value);
+        }
+        return text.toString();
+    }
+
+    @Test
+    public void testParseLimits() throws Exception {
+        final String text = "{\"name\" : \"abcdef\", \"rows\" : [[1, 2], [3, 4, 5]], \"n\" : 123456}";
+        final JSONParser withinLimits = new JSONParser().setMaxDepth(3).setMaxStringLength(6).setMaxObjectMembers(3).setMaxArrayElements(3)
+                .setMaxInputLength(text.length());
+        assertEquals(new JSONObject(text).toString(), withinLimits.parseObject(text).toString());
+
+        assertParseLimit(new JSONParser().setMaxDepth(2), text, "Nesting deeper than 2 levels at 31 [character 32 line 1]");
+        assertParseLimit(new JSONParser().setMaxStringLength(5), text, "String longer than 5 characters at 17 [character 18 line 1]");
+        assertParseLimit(new JSONParser().setMaxStringLength(5), "[123456]", "Value longer than 5 characters at 7 [character 8 line 1]");
+        assertParseLimit(new JSONParser().setMaxObjectMembers(2), text, "Object with more than 2 members at 53 [character 54 line 1]");
+        assertParseLimit(new JSONParser().setMaxArrayElements(2), text, "Array with more than 2 elements at 45 [character 46 line 1]");
+        assertParseLimit(new JSONParser().setMaxInputLength(text.length() - 1), text, "Input longer than 62 characters");
+
+        // the same limits hold for bytes, lazily skipped values and the strict grammar
+        final byte[] bytes = text.getBytes("UTF-8");
+        try {
+            new JSONParser().setLazy(true).setStrict(true).setMaxStringLength(5).parseObject(new ByteArrayInputStream(bytes));
+            fail();
+        } catch (final JSONException expected) {
+            assertEquals("String longer than 5 characters at 17 [character 18 line 1]", expected.getMessage());
+        }
+        try {
+            new JSONParser().setMaxInputLength(bytes.length - 1).parseObject(bytes, 0, bytes.length);
+            fail();
+        } catch (final JSONException expected) {
+            assertEquals("Input longer than 62 bytes", expected.getMessage());
+        }
+    }
+
+    private static void assertParseLimit(final JSONParser parser, final String text, final String message) {
+        try {
+            parser.parse(text, new JSONHandler() {
+                public void startObject() {
+                }
+
+                public void endObject() {
+                }
+
+                public void startArray() {
+                }
+
+                public void endArray() {
+                }
+
+                public void key(final String key) {
+                }
+
+                public void value(final Object value) {
+                }
+            });
+            fail();
+        } catch (final JSONException expected) {
+            assertEquals(message, expected.getMessage());
+        }
+        try {
+            final JSONReader reader = parser.createReader(text);
+            reader.nextToken();
+            reader.readValue();
+            fail();
+        } catch (final JSONException expected) {
+            assertEquals(message, expected.getMessage());
+        }
+    }
+
+    @Test
+    public void testSyntaxErrorReportsLineAndCharacter() throws Exception {
+        final String text = "{\r\n  \"a\" : 1,\n  \"\ud83d\ude00\" : \"x\",\r\n  \"b\" 2\n}";
+        final String message = "Expected a ':' after a key at 36 [character 7 line 4]";
+        final byte[] bytes = text.getBytes("UTF-8");
+        final File file = File.createTempFile("position", ".json");
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+        final FileChannel channel = new FileInputStream(file).getChannel();
+        try {
+            // small buffers and segments, so that lines and the four byte character straddle their boundaries
+            final JSONTokenizer[] tokenizers = { new JSONTokenizer(text), new JSONByteTokenizer(ByteBuffer.wrap(bytes)),
+                    new JSONByteTokenizer(new ByteArrayInputStream(bytes), 3), new JSONMappedTokenizer(channel, 5) };
+            for (final JSONTokenizer tokenizer : tokenizers) {
+                try {
+                    new JSONObject(tokenizer);
+                    fail();
+                } catch (final JSONException expected) {
+                    assertEquals(message, expected.getMessage());
+                }
+            }
+        } finally {
+            channel.close();
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testParseWithHandler() throws JSONException {
+        final List<String> events = new ArrayList<String>();
+        new JSONParser().parse("{\"tabs\" : [{\"id\" : \"NETWORK_TAB\", \"width\" : 2}, ], tag = null}", new JSONHandler() {
+
+            public void startObject() {
+                events.add("{");
+            }
+
+            public void key(final String key) {
+                events.add(key + ":");
+            }
+
+            public void endObject() {
+                events.add("}");
+            }
+
+            public void startArray() {
+                events.add("[");
+            }
+
+            public void endArray() {
+                events.add("]");
+            }
+
+            public void value(final Object value) {
+                events.add(value.getClass().getSimpleName() + " " + value);
+            }
+        });
+        assertEquals(Arrays.asList("{", "tabs:", "[", "{", "id:", "String NETWORK_TAB", "width:", "Integer 2", "}", "]", "tag:", "NullObject null", "}"),
+                events);
+    }
+
+    @Test(expected = JSONException.class)
+    public void testParseWithHandlerSyntaxError() throws JSONException {
+        new JSONParser().parse("{\"tabs\" : [}", new JSONHandler() {
+
+            public void startObject() {
+            }
+
+            public void key(final String key) {
+            }
+
+            public void endObject() {
+                fail("the object is never completed");
+            }
+
+            public void startArray() {
+            }
+
+            public void endArray() {
+            }
+
+            public void value(final Object value) {
+            }
+        });
+    }
+
+    @Test
+    public void testParseWithHandlerScalarAtTopLevel() throws Exception {
+        final List<Object> values = new ArrayList<Object>();
+        final JSONHandler handler = new JSONHandler() {
+
+            public void startObject() {
+            }
+
+            public void key(final String key) {
+            }
+
+            public void endObject() {
+            }
+
+            public void startArray() {
+            }
+
+            public void endArray() {
+            }
+
+            public void value(final Object value) {
+                values.add(value);
+            }
+        };
+        new JSONParser().parse(" [1]", handler);
+        assertEquals(Arrays.asList((Object) 1), values);
+        for (final String text : new String[] { "abc", "\"s\"", "12", "" }) {
+            try {
+                new JSONParser().parse(text, handler);
+                fail(text);
+            } catch (final JSONException expected) {
+                assertTrue(expected.getMessage(), expected.getMessage().startsWith("A JSON text must begin with '{' or '[' at "));
+            }
+            try {
+                new JSONParser().setStrict(true).parse(new ByteArrayInputStream(text.getBytes("UTF-8")), handler);
+                fail(text);
+            } catch (final JSONException expected) {
+                assertTrue(expected.getMessage(), expected.getMessage().startsWith("A JSON text must begin with '{' or '[' at "));
+            }
+        }
+        assertEquals(1, values.size());
+    }
+
+    @Test
+    public void testParseLazily() throws Exception {
+        final File file = new File(ClassLoader.getSystemResource(JSON_FILE).toURI());
+        final JSONObject expected = readSampleJsonFile();
+        final JSONParser parser = new JSONParser().setLazy(true);
+        assertEquals(expected.toString(), parser.parseObject(file).toString());
+
+        final JSONObject uiMetaData = parser.parseObject(expected.toString());
+        final JSONArray tabs = (JSONArray) uiMetaData.get(TABS);
+        assertSame(tabs, uiMetaData.get(TABS));
+        assertEquals(((JSONArray) expected.get(TABS)).toString(), tabs.toString());
+    }
+
+    @Test
+    public void testParseLazilyReadFromSeveralThreads() throws Exception {
+        final StringBuilder rows = new StringBuilder("[");
+        for (int i = 0; i < 2000; i++) {
+            rows.append(i == 0 ? "" : ", ").append("{\"id\" : ").append(i).append(", \"values\" : [").append(i).append("]}");
+        }
+        final JSONArray jsonArray = new JSONParser().setLazy(true).parseArray(rows.append(']').toString());
+        final Object[][] seen = new Object[4][jsonArray.length()];
+        final Thread[] threads = new Thread[seen.length];
+        for (int t = 0; t < threads.length; t++) {
+            final Object[] values = seen[t];
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = jsonArray.opt(i);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        for (int i = 0; i < jsonArray.length(); i++) {
+            assertEquals(i, jsonArray.getJSONObject(i).get("id"));
+            for (final Object[] values : seen) {
+                assertSame(jsonArray.opt(i), values[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testParseLazilyReportsErrorsInNestedValues() throws Exception {
+        final JSONParser parser = new JSONParser().setLazy(true);
+        try {
+            parser.parseObject("{\"tabs\" : [{\"id\" : 1, \"id\" : 2}]}");
+            fail();
+        } catch (final JSONException expected) {
+            assertEquals("Duplicate key \"id\"", expected.getMessage());
+        }
+        try {
+            parser.parseArray("[1, {\"a\" : [2 : 3]}]");
+            fail();
+        } catch (final JSONException expected) {
+            assertEquals("Expected a ',' or ']' at 15 [character 16 line 1]", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void testParseArrayInParallel() throws Exception {
+        final StringBuilder rows = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++) {
+            rows.append("{\"id\" : ").append(i).append(", \"values\" : [").append(i).append(", \"x\"]}, ");
+        }
+        rows.append("'last',, 7]");
+        final String text = rows.toString();
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final JSONParser parser = new JSONParser().setParallel(pool);
+            final JSONArray jsonArray = parser.parseArray(text);
+            assertEquals(1003, jsonArray.length());
+            assertEquals(999, jsonArray.getJSONObject(999).get("id"));
+            assertEquals(new JSONArray(text).toString(), jsonArray.toString());
+
+            final String duplicate = text.replace("{\"id\" : 500,", "{\"id\" : 500, \"id\" : 501,");
+            try {
+                parser.parseArray(duplicate);
+                fail();
+            } catch (final JSONException expected) {
+                assertEquals("Duplicate key \"id\"", expected.getMessage());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testRepeatedKeysAreShared() throws Exception {
+        final byte[] bytes = "{\"datatype\" : \"string\"}".getBytes("UTF-8");
+        final Object fromString = new JSONObject("{\"datatype\" : \"string\"}").keys().next();
+        final Object fromBytes = new JSONParser().parseObject(bytes, 0, bytes.length).keys().next();
+        assertEquals("datatype", fromString);
+        assertSame(fromString, fromBytes);
+
+        final JSONArray rows = new JSONArray("[{'id' : 1}, {'id' : 2}, {'i\\u0064' : 3}]");
+        assertSame(rows.getJSONObject(0).keys().next(), rows.getJSONObject(1).keys().next());
+        assertEquals("id", rows.getJSONObject(2).keys().next());
+    }
+
+    @Test
+    public void testParseStrict() throws Exception {
+        final File file = new File(ClassLoader.getSystemResource(JSON_FILE).toURI());
+        final JSONObject expected = readSampleJsonFile();
+        final JSONParser parser = new JSONParser().setStrict(true);
+        assertEquals(expected.toString(), parser.parseObject(file).toString());
+        assertEquals(expected.toString(), parser.setLazy(true).parseObject(expected.toString()).toString());
+
+        final String numbers = "[0, -0, 2147483648, -9223372036854775808, 12345678901234567890, 1.5, -2E-3, 1e+2, true, false, null, \"\\u0041\\/\"]";
+        assertEquals(new JSONArray(numbers).toString(), new JSONParser().setStrict(true).parseArray(numbers).toString());
+        assertEquals(Long.valueOf(2147483648L), new JSONParser().setStrict(true).parseArray(numbers).get(2));
+    }
+
+    @Test
+    public void testParseStrictRejectsLenientForms() throws Exception {
+        final JSONParser parser = new JSONParser().setStrict(true);
+        final String[] lenient = { "{'a' : 1}", "{a : 1}", "{\"a\" = 1}", "{\"a\" => 1}", "{\"a\" : 1; \"b\" : 2}", "{\"a\" : 1,}", "{\"a\" : (\"x\")}",
+                "{\"a\" : [1,,2]}", "{\"a\" : [1,]}", "{\"a\" : 0x1F}", "{\"a\" : 01}", "{\"a\" : 1.}", "{\"a\" : .5}", "{\"a\" : +1}",
+                "{\"a\" : abc}", "{\"a\" : True}", "{\"a\" : \"\\'\"}", "{\"a\" : \"\t\"}" };
+        for (final String text : lenient) {
+            new JSONObject(text);
+            try {
+                parser.parseObject(text);
+                fail(text);
+            } catch (final JSONException expected) {
+                // not standard JSON
+            }
+        }
+        try {
+            parser.parseObject("{\"a\" : [1, 2,]}");
+            fail();
+        } catch (final JSONException expected) {
+            assertEquals("Missing value at 13 [character 14 line 1]", expected.getMessage());
+        }
+        try {
+            parser.parseObject("{\"a\" : -}");
+            fail();
+        } catch (final JSONException expected) {
+            assertEquals("Invalid number at 9 [character 10 line 1]", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void testParseStrictRejectsOtherWhitespace() throws Exception {
+        final JSONParser parser = new JSONParser().setStrict(true);
+        assertEquals(2, parser.parseObject(" \t\r\n{\"a\" :\t[1,\r\n2]}\n").getJSONArray("a").length());
+        for (final String text : new String[] { "{\"a\" :\u000b1}", "{\u0001\"a\" : 1}", "{\"a\" : [1,\f2]}", "\u001f{}" }) {
+            new JSONObject(text);
+            try {
+                parser.parseObject(text);
+                fail(text);
+            } catch (final JSONException expected) {
+                // not whitespace in standard JSON
+            }
+        }
+    }
+
+    @Test
+    public void testParseStrictRejectsMalformedUnicodeEscapes() throws Exception {
+        final JSONParser parser = new JSONParser().setStrict(true);
+        assertEquals("\u00e9\uABCD", parser.parseObject("{\"a\" : \"\\u00e9\\uABCD\"}").getString("a"));
+        for (final String text : new String[] { "{\"a\" : \"\\u+123\"}", "{\"a\" : \"\\u-001\"}" }) {
+            assertEquals(1, new JSONObject(text).getString("a").length());
+        }
+        for (final String text : new String[] { "{\"a\" : \"\\u+123\"}", "{\"a\" : \"\\u-001\"}", "{\"a\" : \"\\uZZZZ\"}",
+                "{\"a\" : \"\\u\uff10\uff10\uff10\uff10\"}" }) {
+            try {
+                parser.parseObject(text);
+                fail(text);
+            } catch (final JSONException expected) {
+                assertEquals("Illegal escape. at 14 [character 15 line 1]", expected.getMessage());
+            }
+            try {
+                parser.parseObject(text.getBytes("UTF-8"), 0, text.getBytes("UTF-8").length);
+                fail(text);
+            } catch (final JSONException expected) {
+                assertEquals("Illegal escape. at 14 [character 15 line 1]", expected.getMessage());
+            }
+            try {
+                parser.validate(text);
+                fail(text);
+            } catch (final JSONException expected) {
+                assertEquals("Illegal escape. at 14 [character 15 line 1]", expected.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testParseStrictRejectsTextAfterValue() throws Exception {
+        final JSONParser parser = new JSONParser().setStrict(true);
+        final String text = "{\"a\" : 1} garbage";
+        assertEquals(1, new JSONParser().parseObject(text).get("a"));
+        try {
+            parser.parseObject(text);
+            fail();
+        } catch (final JSONException expected) {
+            assertEquals("Expected the end of the text at 11 [character 12 line 1]", expected.getMessage());
+        }
+        try {
+            parser.parseObject(new ByteArrayInputStream(text.getBytes("UTF-8")));
+            fail();
+        } catch (final JSONException expected) {
+            assertEquals("Expected the end of the text at 11 [character 12 line 1]", expected.getMessage());
+        }
+        try {
+            parser.parseArray("[1] [2]".getBytes("UTF-8"), 0, 7);
+            fail();
+        } catch (final JSONException expected) {
+            assertEquals("Expected the end of the text at 5 [character 6 line 1]", expected.getMessage());
+        }
+        final String nul = "{\"a\" : 1}\u0000garbage";
+        assertEquals(1, new JSONParser().parseObject(nul).get("a"));
+        try {
+            parser.parseObject(nul);
+            fail();
+        } catch (final JSONException expected) {
+            assertEquals("Expected the end of the text at 10 [character 11 line 1]", expected.getMessage());
+        }
+        try {
+            parser.parseObject(new ByteArrayInputStream(nul.getBytes("UTF-8")));
+            fail();
+        } catch (final JSONException expected) {
+            assertEquals("Expected the end of the text at 10 [character 11 line 1]", expected.getMessage());
+        }
+        try {
+            parser.parseArray("[1]\u0000".getBytes("UTF-8"), 0, 4);
+            fail();
+        } catch (final JSONException expected) {
+            assertEquals("Expected the end of the text at 4 [character 5 line 1]", expected.getMessage());
+        }
+        final JSONReader nulReader = parser.createReader("[1]\u0000]");
+        assertEquals(JSONToken.START_ARRAY, nulReader.nextToken());
+        assertEquals(JSONToken.VALUE_NUMBER, nulReader.nextToken());
+        try {
+            nulReader.nextToken();
+            fail();
+        } catch (final JSONException expected) {
+            assertEquals("Expected the end of the text at 4 [character 5 line 1]", expected.getMessage());
+        }
+        final JSONReader reader = parser.createReader("[1]]");
+        assertEquals(JSONToken.START_ARRAY, reader.nextToken());
+        assertEquals(JSONToken.VALUE_NUMBER, reader.nextToken());
+        try {
+            reader.nextToken();
+            fail();
+        } catch (final JSONException expected) {
+            assertEquals("Expected the end of the text at 4 [character 5 line 1]", expected.getMessage());
+        }
+    }
+
     @Test
     public void test_create_JSONObject() throws JSONException {
         final JSONObject json = new JSONObject("{}");
@@ -154,6 +842,70 @@ public class JSONParserTest {
         assertEquals("{\"d1\":1,\"f1\":2.1}", jo.toString());
     }
 
+    @Test
+    public void test_writeTo_expectSameTextAsToString() throws Exception {
+        final JSONObject uiMetaData = readSampleJsonFile();
+        final StringWriter writer = new StringWriter();
+        assertSame(writer, uiMetaData.writeTo(writer));
+        assertEquals(uiMetaData.toString(), writer.toString());
+
+        final JSONArray tabs = uiMetaData.getJSONArray(TABS);
+        final StringBuilder sb = new StringBuilder("tabs=");
+        tabs.writeTo(sb);
+        assertEquals("tabs=" + tabs.toString(), sb.toString());
+
+        final JSONArray invalid = new JSONArray().put("</a>").put(Double.NaN);
+        assertEquals("[]", invalid.toString());
+        try {
+            new JSONObject().put("a", invalid).writeTo(new StringBuilder());
+            fail();
+        } catch (final JSONException expected) {
+            assertEquals("JSON does not allow non-finite numbers.", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void test_toString_nestedInvalidNumber_expectNestedValueReplacedAsBefore() throws Exception {
+        final JSONObject jsonObject = new JSONObject().put("a", new JSONArray().put(Double.NaN)).put("b", 1);
+        assertEquals("{\"a\":[],\"b\":1}", jsonObject.toString());
+        assertEquals("[1,[],{\"c\":{\"a\":[],\"b\":1}}]", new JSONArray().put(1).put(new JSONArray().put(2).put(Double.NaN))
+                .put(new JSONObject().put("c", jsonObject)).toString());
+        assertEquals("1,[]", new JSONArray().put(1).put(new double[] { Double.POSITIVE_INFINITY }).join(","));
+        assertEquals("{\"a\":[],\"b\":1}", jsonObject.setTextCached(true).toString());
+    }
+
+    @Test
+    public void test_toString_subclassOverrides_expectUsedForNestedValues() throws Exception {
+        final JSONObject sorted = new JSONObject() {
+            @Override
+            public Iterator<Object> keys() {
+                return sortedKeys();
+            }
+        };
+        for (final String key : new String[] { "d1", "f1", "a", "height", "width" }) {
+            sorted.put(key, 1);
+        }
+        final String sortedText = "{\"a\":1,\"d1\":1,\"f1\":1,\"height\":1,\"width\":1}";
+        assertEquals(sortedText, sorted.toString());
+        final JSONArray spaced = new JSONArray() {
+            @Override
+            public String join(final String separator) throws JSONException {
+                return super.join(separator + " ");
+            }
+        };
+        spaced.put(1).put(sorted);
+        final JSONObject custom = new JSONObject() {
+            @Override
+            public String toString() {
+                return "\"custom\"";
+            }
+        };
+        assertEquals("[1, " + sortedText + "]", spaced.toString());
+        assertEquals("{\"s\":[1, " + sortedText + "]}", new JSONObject().put("s", spaced).toString());
+        assertEquals("{\"s\":[1, " + sortedText + "]}", new JSONObject().put("s", spaced).writeTo(new StringBuilder()).toString());
+        assertEquals("{\"c\":\"custom\"}", new JSONObject().put("c", custom).toString());
+    }
+
     @Test(expected = JSONException.class)
     public void test_create_JSONObject_with_illegal_double_values() throws JSONException {
         final JSONObject jo = new JSONObject();
@@ -532,4 +1284,96 @@ public class JSONParserTest {
 
     }
 
+    @Test
+    public void testStringToValueNumberForms() {
+        assertEquals(Integer.valueOf(-2147483648), JSONObject.stringToValue("-2147483648"));
+        assertEquals(Long.valueOf(2147483648L), JSONObject.stringToValue("2147483648"));
+        assertEquals(Long.MIN_VALUE, JSONObject.stringToValue("-9223372036854775808"));
+        assertEquals("9223372036854775808", JSONObject.stringToValue("9223372036854775808"));
+        assertEquals(Integer.valueOf(255), JSONObject.stringToValue("0xff"));
+        assertEquals(Integer.valueOf(30), JSONObject.stringToValue("0x1e"));
+        assertEquals("0x80000000", JSONObject.stringToValue("0x80000000"));
+        assertEquals(3.0, JSONObject.stringToValue("0x1.8p1"));
+        assertEquals(0.5, JSONObject.stringToValue("+.5"));
+        assertEquals(1.0, JSONObject.stringToValue("1.0d"));
+        assertEquals(100.0, JSONObject.stringToValue("1e2"));
+        assertEquals("1e", JSONObject.stringToValue("1e"));
+        assertEquals("5d", JSONObject.stringToValue("5d"));
+        assertEquals("-", JSONObject.stringToValue("-"));
+        assertEquals("12:30", JSONObject.stringToValue("12:30"));
+        assertEquals("2011-02-14 10:15", JSONObject.stringToValue("2011-02-14 10:15"));
+    }
+
+    @Test
+    public void testQuote() throws Exception {
+        assertEquals("\"\"", JSONObject.quote(null));
+        assertEquals("\"\"", JSONObject.quote(""));
+        assertEquals("\"plain text\"", JSONObject.quote("plain text"));
+        assertEquals("\"a\\\"b\\\\c\\b\\t\\n\\f\\r\\u0000\\u001f\u007f\"", JSONObject.quote("a\"b\\c\b\t\n\f\r\u0000\u001f\u007f"));
+        assertEquals("\"/ <\\/script> < /\"", JSONObject.quote("/ </script> < /"));
+        assertEquals("\"\\u0080\\u009f\u00a0\u1fff\\u2000\\u2028\\u20ff\u2100\ud83d\ude00\"",
+                JSONObject.quote("\u0080\u009f\u00a0\u1fff\u2000\u2028\u20ff\u2100\ud83d\ude00"));
+
+        final String plain = "nothing to escape / here \u00e9";
+        assertEquals('"' + plain + '"', JSONObject.quote(plain));
+        final StringBuilder sb = new StringBuilder("=");
+        JSONObject.quote(plain, sb);
+        JSONObject.quote("x\ny</", sb);
+        assertEquals("=\"" + plain + "\"\"x\\ny<\\/\"", sb.toString());
+    }
+
+    @Test
+    public void testNumberToString() throws Exception {
+        final Number[] numbers = { 0, -1, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, 1000000000000000000L, (short) -300, (byte) 7, 2.0,
+                -0.0, 1.5, 100.25, 1.0E-5, 1.0E21, 123456.7f, new BigDecimal("1.500"), new BigDecimal("2.000"), new BigDecimal("1.50E+3"),
+                new BigInteger("123456789012345678901234567890") };
+        final String[] texts = { "0", "-1", "-2147483648", "9223372036854775807", "-9223372036854775808", "1000000000000000000", "-300", "7", "2",
+                "-0", "1.5", "100.25", "1.0E-5", "1.0E21", "123456.7", "1.5", "2", "1.50E+3", "123456789012345678901234567890" };
+        for (int i = 0; i < numbers.length; i++) {
+            assertEquals(texts[i], JSONObject.numberToString(numbers[i]));
+            final StringBuilder sb = new StringBuilder();
+            JSONObject.writeValue(numbers[i], sb);
+            assertEquals(texts[i], sb.toString());
+        }
+        try {
+            JSONObject.numberToString(Float.POSITIVE_INFINITY);
+            fail();
+        } catch (final JSONException expected) {
+            assertEquals("JSON does not allow non-finite numbers.", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void test_setTextCached_expectTextKeptUntilChangeInTree() throws Exception {
+        final JSONObject jsonObject = new JSONParser().setLazy(true).parseObject("{\"meta\" : {\"columns\" : [{\"id\" : 1}]}, \"name\" : \"grid\"}");
+        jsonObject.setTextCached(true);
+        final String text = jsonObject.toString();
+        assertEquals("{\"meta\":{\"columns\":[{\"id\":1}]},\"name\":\"grid\"}", normalise(jsonObject));
+        assertSame(text, jsonObject.toString());
+
+        final JSONObject meta = jsonObject.getJSONObject("meta");
+        meta.setTextCached(true);
+        final JSONObject column = meta.getJSONArray("columns").getJSONObject(0);
+        column.put("id", 2);
+        assertEquals(text.replace("1", "2"), jsonObject.toString());
+        final String metaText = meta.toString();
+        assertSame(metaText, meta.toString());
+
+        meta.getJSONArray("columns").put(true);
+        assertEquals("{\"columns\":[{\"id\":2},true]}", meta.toString());
+        column.remove("id");
+        assertTrue(jsonObject.toString().contains("[{},true]"));
+        jsonObject.remove("name");
+        jsonObject.putOnce("title", "\u20ac");
+        assertEquals("{\"meta\":{\"columns\":[{},true]},\"title\":\"\\u20ac\"}", normalise(jsonObject));
+
+        final StringWriter writer = new StringWriter();
+        new JSONArray().put(jsonObject).put(jsonObject).writeTo(writer);
+        assertEquals("[" + jsonObject + "," + jsonObject + "]", writer.toString());
+
+        jsonObject.setTextCached(false);
+        assertNotSame(jsonObject.toString(), jsonObject.toString());
+        assertEquals(jsonObject.toString(), new JSONObject(jsonObject.toString()).toString());
+    }
+
 }
@@ -0,0 +1,144 @@
+package com.ericsson.eniq.events.server.json;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+
+import org.junit.Test;
+
+public class JSONReaderTest {
+
+    private static final String GRID = "{\"id\" : \"GRID_1\", \"rows\" : [{\"imsi\" : 1, \"name\" : \"a\"}, {\"imsi\" : 2, \"name\" : \"b\"}], \"total\" : 2}";
+
+    @Test
+    public void nextToken_scalarsAndContainers_expectEventsInDocumentOrder() throws Exception {
+        final JSONReader reader = new JSONParser().createReader("[\"s\", 12, 3000000000, 1.5, true, false, null]");
+        assertEquals(JSONToken.START_ARRAY, reader.nextToken());
+        assertEquals(JSONToken.VALUE_STRING, reader.nextToken());
+        assertEquals("s", reader.getValue());
+        assertEquals(JSONToken.VALUE_NUMBER, reader.nextToken());
+        assertEquals(12, reader.getValue());
+        assertEquals(JSONToken.VALUE_NUMBER, reader.nextToken());
+        assertEquals(3000000000L, reader.getValue());
+        assertEquals(JSONToken.VALUE_NUMBER, reader.nextToken());
+        assertEquals(1.5, reader.getValue());
+        assertEquals(JSONToken.VALUE_TRUE, reader.nextToken());
+        assertEquals(JSONToken.VALUE_FALSE, reader.nextToken());
+        assertEquals(JSONToken.VALUE_NULL, reader.nextToken());
+        assertEquals(JSONObject.NULL_OBJECT, reader.getValue());
+        assertEquals(JSONToken.END_ARRAY, reader.nextToken());
+        assertNull(reader.nextToken());
+    }
+
+    @Test
+    public void nextToken_lenientForms_expectSameValuesAsTree() throws Exception {
+        final JSONReader reader = new JSONParser().createReader("{'a' => (1; 2,,'x'); b = unquoted text;}");
+        assertEquals(JSONToken.START_OBJECT, reader.nextToken());
+        assertEquals(JSONToken.FIELD_NAME, reader.nextToken());
+        assertEquals("a", reader.getString());
+        assertEquals(JSONToken.START_ARRAY, reader.nextToken());
+        assertEquals(JSONToken.VALUE_NUMBER, reader.nextToken());
+        assertEquals(JSONToken.VALUE_NUMBER, reader.nextToken());
+        assertEquals(JSONToken.VALUE_NULL, reader.nextToken());
+        assertNull(reader.getValue());
+        assertEquals(JSONToken.VALUE_STRING, reader.nextToken());
+        assertEquals(JSONToken.END_ARRAY, reader.nextToken());
+        assertEquals(JSONToken.FIELD_NAME, reader.nextToken());
+        assertEquals(JSONToken.VALUE_STRING, reader.nextToken());
+        assertEquals("b", reader.getFieldName());
+        assertEquals("unquoted text", reader.getValue());
+        assertEquals(JSONToken.END_OBJECT, reader.nextToken());
+        assertNull(reader.nextToken());
+    }
+
+    @Test
+    public void readValue_rowsOfArray_expectOneJSONObjectPerRow() throws Exception {
+        final byte[] bytes = GRID.getBytes("UTF-8");
+        final JSONReader reader = new JSONParser().createReader(new ByteArrayInputStream(bytes));
+        assertEquals(JSONToken.START_OBJECT, reader.nextToken());
+        int rows = 0;
+        while (reader.nextToken() == JSONToken.FIELD_NAME) {
+            if ("rows".equals(reader.getString())) {
+                assertEquals(JSONToken.START_ARRAY, reader.nextToken());
+                while (reader.nextToken() == JSONToken.START_OBJECT) {
+                    final JSONObject row = (JSONObject) reader.readValue();
+                    assertEquals(JSONToken.END_OBJECT, reader.getToken());
+                    assertEquals(++rows, row.get("imsi"));
+                }
+                assertEquals(JSONToken.END_ARRAY, reader.getToken());
+            } else {
+                reader.nextToken();
+            }
+        }
+        assertEquals(2, rows);
+        assertEquals(JSONToken.END_OBJECT, reader.getToken());
+    }
+
+    @Test
+    public void skipChildren_nestedArray_expectPositionedAtMatchingEnd() throws Exception {
+        final JSONReader reader = new JSONParser().createReader(GRID);
+        reader.nextToken();
+        reader.nextToken();
+        reader.nextToken();
+        assertEquals(JSONToken.FIELD_NAME, reader.nextToken());
+        assertEquals(JSONToken.START_ARRAY, reader.nextToken());
+        reader.skipChildren();
+        assertEquals(JSONToken.END_ARRAY, reader.getToken());
+        assertEquals(1, reader.getDepth());
+        assertEquals(JSONToken.FIELD_NAME, reader.nextToken());
+        assertEquals("total", reader.getString());
+    }
+
+    @Test
+    public void nextToken_missingSeparator_expectSameMessageAsTree() throws Exception {
+        final String text = "{\"a\" : 1 \"b\" : 2}";
+        final JSONReader reader = new JSONParser().createReader(text);
+        reader.nextToken();
+        reader.nextToken();
+        reader.nextToken();
+        try {
+            reader.nextToken();
+            fail();
+        } catch (final JSONException expected) {
+            assertEquals("Expected a ',' or '}' at 10 [character 11 line 1]", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void nextToken_scalarAtTopLevel_expectSameMessageAsTree() throws Exception {
+        for (final String text : new String[] { "l[", "\"s\"", " 12" }) {
+            final JSONReader reader = new JSONParser().createReader(text);
+            try {
+                reader.nextToken();
+                fail(text);
+            } catch (final JSONException expected) {
+                try {
+                    new JSONObject(text);
+                    fail(text);
+                } catch (final JSONException tree) {
+                    assertEquals(tree.getMessage(), expected.getMessage());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void nextToken_duplicatedKey_expectRejectedAfterItsValue() throws Exception {
+        final JSONReader reader = new JSONParser().createReader("{\"a\" : {\"a\" : 1}, \"b\" : 2, \"a\" : [3]}");
+        assertEquals(JSONToken.START_OBJECT, reader.nextToken());
+        assertEquals(JSONToken.FIELD_NAME, reader.nextToken());
+        assertEquals(JSONToken.START_OBJECT, reader.nextToken());
+        reader.skipChildren();
+        assertEquals(JSONToken.FIELD_NAME, reader.nextToken());
+        assertEquals(JSONToken.VALUE_NUMBER, reader.nextToken());
+        assertEquals(JSONToken.FIELD_NAME, reader.nextToken());
+        assertEquals(JSONToken.START_ARRAY, reader.nextToken());
+        assertEquals(JSONToken.VALUE_NUMBER, reader.nextToken());
+        try {
+            reader.nextToken();
+            fail();
+        } catch (final JSONException expected) {
+            assertEquals("Duplicate key \"a\"", expected.getMessage());
+        }
+    }
+}
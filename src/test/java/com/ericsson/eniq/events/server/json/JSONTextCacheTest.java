@@ -0,0 +1,44 @@
+package com.ericsson.eniq.events.server.json;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class JSONTextCacheTest {
+
+    @Test
+    public void setText_changedWhileTextMade_expectTextNotKept() {
+        final JSONTextCache cache = new JSONTextCache();
+        cache.setEnabled(true);
+        final int version = cache.getVersion();
+        cache.invalidate();
+        cache.setText("{\"a\":1}", version);
+        assertNull(cache.getText());
+
+        cache.setText("{\"a\":2}", cache.getVersion());
+        assertEquals("{\"a\":2}", cache.getText());
+    }
+
+    @Test
+    public void invalidate_severalParents_expectAllDropped() {
+        final JSONTextCache child = new JSONTextCache();
+        final JSONTextCache[] parents = { new JSONTextCache(), new JSONTextCache(), new JSONTextCache() };
+        for (final JSONTextCache parent : parents) {
+            parent.setEnabled(true);
+            parent.setText("[]", parent.getVersion());
+            child.addParent(parent);
+            child.addParent(parent);
+        }
+        child.invalidate();
+        for (final JSONTextCache parent : parents) {
+            assertNull(parent.getText());
+            parent.setText("[]", parent.getVersion());
+        }
+
+        // the records were cleared with the texts
+        child.invalidate();
+        for (final JSONTextCache parent : parents) {
+            assertEquals("[]", parent.getText());
+        }
+    }
+}
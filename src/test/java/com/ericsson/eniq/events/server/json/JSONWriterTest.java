@@ -0,0 +1,194 @@
+package com.ericsson.eniq.events.server.json;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+import org.junit.Test;
+
+import com.ericsson.eniq.events.server.test.FileReader;
+
+public class JSONWriterTest {
+
+    @Test
+    public void write_nestedValues_expectCompactText() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final JSONWriter writer = new JSONWriter(bytes);
+        writer.beginObject().name("id").value("GRID_1").name("rows").beginArray();
+        writer.beginArray().value("a\"b").value(12L).value(1.5).value(true).value((Object) null).endArray();
+        writer.beginArray().endArray().beginObject().endObject();
+        writer.endArray().name("total").value(2.0).endObject().flush();
+
+        assertEquals("{\"id\":\"GRID_1\",\"rows\":[[\"a\\\"b\",12,1.5,true,null],[],{}],\"total\":2}", bytes.toString("UTF-8"));
+    }
+
+    @Test
+    public void write_toChannel_expectSameBytesAsStream() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final JSONWriter writer = new JSONWriter(Channels.newChannel(bytes));
+        writer.beginArray().value("\u00e9\u20ac\ud83d\ude00</").value(-7L).endArray().flush();
+
+        assertArrayEquals("[\"\u00e9\\u20ac\ud83d\ude00<\\/\",-7]".getBytes("UTF-8"), bytes.toByteArray());
+    }
+
+    @Test
+    public void write_treeThroughSmallBuffer_expectBytesOfToString() throws Exception {
+        final InputStream fileInputStream = ClassLoader.getSystemClassLoader().getResourceAsStream(JSONParserTest.JSON_FILE);
+        final JSONObject jsonObject = new JSONObject(FileReader.readInputStream(fileInputStream));
+        jsonObject.put("text", "\u0000\u001f\u0080\u07ff\u0800\u2028\uffff\ud800\udc00\udbff\udfff \ud800 \udc00");
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new JSONWriter(bytes, 5).value(jsonObject).flush();
+
+        assertArrayEquals(jsonObject.toString().getBytes("UTF-8"), bytes.toByteArray());
+    }
+
+    @Test
+    public void write_cachedTree_expectBytesOfToStringEachTime() throws Exception {
+        final JSONObject jsonObject = new JSONObject("{\"a\" : [1, \"\\u00e9\"], \"b\" : {\"c\" : null}}").setTextCached(true);
+        final byte[] expected = ("[" + jsonObject + "," + jsonObject + "]").getBytes("UTF-8");
+        for (final int bufferSize : new int[] { 5, 8192 }) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            new JSONWriter(bytes, bufferSize).beginArray().value(jsonObject).value(jsonObject).endArray().flush();
+            assertArrayEquals(expected, bytes.toByteArray());
+        }
+
+        jsonObject.getJSONArray("a").put(2);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new JSONWriter(bytes).value(jsonObject).flush();
+        assertArrayEquals(jsonObject.toString().getBytes("UTF-8"), bytes.toByteArray());
+        assertTrue(bytes.toString("UTF-8").contains("2]"));
+    }
+
+    @Test
+    public void write_misplacedCalls_expectJSONException() throws Exception {
+        final JSONWriter writer = new JSONWriter(new ByteArrayOutputStream());
+        assertMisplaced(writer, "Misplaced endArray", 0);
+        writer.beginObject();
+        assertMisplaced(writer, "Misplaced value", 1);
+        assertMisplaced(writer, "Misplaced endArray", 0);
+        writer.name("a");
+        assertMisplaced(writer, "Misplaced name", 2);
+        assertMisplaced(writer, "Misplaced endObject", 3);
+        writer.value(1L).endObject();
+        assertMisplaced(writer, "Misplaced value", 1);
+        assertMisplaced(writer, "Misplaced endObject", 3);
+        try {
+            new JSONWriter(new ByteArrayOutputStream()).beginObject().name(null);
+            fail();
+        } catch (final JSONException expected) {
+            assertEquals("Null key.", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void write_gzip_expectCompressedBytesOfToString() throws Exception {
+        final JSONObject jsonObject = sampleObject();
+        final byte[] text = jsonObject.toString().getBytes("UTF-8");
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new JSONWriter(bytes, JSONCompression.gzip(), 100).value(jsonObject).finish();
+
+        assertTrue(bytes.size() < text.length / 2);
+        final InputStream inflated = new GZIPInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        final ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        for (int b = inflated.read(); b >= 0; b = inflated.read()) {
+            plain.write(b);
+        }
+        assertArrayEquals(text, plain.toByteArray());
+    }
+
+    @Test
+    public void write_deflateWithDictionary_expectFewerBytesAndSameText() throws Exception {
+        final JSONObject jsonObject = sampleObject();
+        final byte[] dictionary = JSONCompression.createDictionary(Arrays.asList(jsonObject.toString(), jsonObject.toString()), 2048);
+        assertTrue(dictionary.length <= 2048);
+        assertTrue(new String(dictionary, "UTF-8").contains("\"datatype\":"));
+
+        final ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        new JSONWriter(plain, JSONCompression.deflate(null)).value(jsonObject).finish();
+        final ByteArrayOutputStream preset = new ByteArrayOutputStream();
+        new JSONWriter(Channels.newChannel(preset), JSONCompression.deflate(dictionary)).value(jsonObject).finish();
+        assertTrue(preset.size() < plain.size());
+
+        final Inflater inflater = new Inflater();
+        inflater.setInput(preset.toByteArray());
+        final byte[] text = new byte[jsonObject.toString().length() * 2];
+        int length = inflater.inflate(text);
+        assertTrue(inflater.needsDictionary());
+        inflater.setDictionary(dictionary);
+        length += inflater.inflate(text, length, text.length - length);
+        assertTrue(inflater.finished());
+        inflater.end();
+        assertEquals(jsonObject.toString(), new String(text, 0, length, "UTF-8"));
+    }
+
+    @Test
+    public void write_flushIntervalAndFinish_expectFlushPointsAndNoWritesAfterFinish() throws Exception {
+        final int[] flushes = new int[1];
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream() {
+            @Override
+            public void flush() {
+                flushes[0]++;
+            }
+        };
+        final JSONWriter writer = new JSONWriter(bytes, 16).setFlushInterval(32);
+        writer.beginArray();
+        for (int i = 0; i < 20; i++) {
+            writer.value("abcd");
+        }
+        assertTrue(flushes[0] >= 2);
+        writer.endArray().finish();
+        assertEquals(141, bytes.size());
+
+        try {
+            writer.flush();
+            writer.value(1L);
+            writer.flush();
+            fail();
+        } catch (final JSONException expected) {
+            assertEquals("Misplaced value", expected.getMessage());
+        }
+        final JSONWriter gzip = new JSONWriter(new ByteArrayOutputStream(), JSONCompression.gzip());
+        gzip.beginArray().finish();
+        try {
+            gzip.endArray().flush();
+            fail();
+        } catch (final JSONException expected) {
+            assertEquals("Text written after the output was finished", expected.getCause().getMessage());
+        }
+    }
+
+    private static JSONObject sampleObject() throws Exception {
+        final InputStream fileInputStream = ClassLoader.getSystemClassLoader().getResourceAsStream(JSONParserTest.JSON_FILE);
+        return new JSONObject(FileReader.readInputStream(fileInputStream));
+    }
+
+    private static void assertMisplaced(final JSONWriter writer, final String message, final int call) {
+        try {
+            switch (call) {
+                case 0:
+                    writer.endArray();
+                    break;
+                case 1:
+                    writer.value("x");
+                    break;
+                case 2:
+                    writer.name("b");
+                    break;
+                default:
+                    writer.endObject();
+                    break;
+            }
+            fail();
+        } catch (final JSONException expected) {
+            assertEquals(message, expected.getMessage());
+        }
+    }
+}